@@ -0,0 +1,193 @@
+package refactor_adressbook.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.util.ReflectionUtils;
+import refactor_adressbook.dao.ContactDao;
+import refactor_adressbook.dao.ContactPage;
+import refactor_adressbook.dao.ContactSortKey;
+import refactor_adressbook.model.Contact;
+import refactor_adressbook.service.AddressBook;
+import refactor_adressbook.service.ContactPrefixIndex;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures every {@link AddressBook} operation with each {@link ContactDao} implementation on embedded H2.
+ * <p>
+ * {@code dao} is the name of the injected bean, so other implementations can be measured with
+ * {@code -p dao=cachingContactDao}. {@code contacts} is the amount of contacts created before the measurement.
+ * {@code prefixIndex} declares {@link ContactPrefixIndex} loaded from the measured DAO, so prefix lookups
+ * and phone code lookups are measured both with the index and with the fallback to {@code findAll}.
+ * Saved contacts stay in the table, so the table slowly grows during {@link #saveContact()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddressBookBenchmark {
+    private static final int BULK_SIZE = 100;
+    private static final int PAGE_SIZE = 100;
+    private static final int PREFIX_INDEX_MAX_ENTRIES = 10_000_000;
+
+    @Param({"contactDaoJdbc", "contactRepository"})
+    public String dao;
+
+    @Param({"1000", "100000"})
+    public int contacts;
+
+    @Param({"false", "true"})
+    public boolean prefixIndex;
+
+    private AnnotationConfigApplicationContext context;
+    private AddressBook addressBook;
+    private final AtomicLong savedCounter = new AtomicLong();
+    private List<String> bulkNames;
+    private String middlePageToken;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        // contacts are created before the context, so the prefix index is loaded with them at startup
+        new ContactDataSet(new DriverManagerDataSource(BenchmarkConfig.URL, BenchmarkConfig.LOGIN, BenchmarkConfig.PASSWORD))
+                .create(contacts);
+        context = new AnnotationConfigApplicationContext();
+        context.register(BenchmarkConfig.class);
+        if (prefixIndex) {
+            context.registerBeanDefinition("contactPrefixIndex", BeanDefinitionBuilder
+                    .genericBeanDefinition(ContactPrefixIndex.class)
+                    .addConstructorArgReference(dao)
+                    .addConstructorArgValue(PREFIX_INDEX_MAX_ENTRIES)
+                    .getBeanDefinition());
+        }
+        context.refresh();
+        addressBook = context.getBean(AddressBook.class);
+        injectContactDao(context.getBean(dao, ContactDao.class));
+
+        bulkNames = new ArrayList<>(BULK_SIZE);
+        for (int i = 0; i < BULK_SIZE; i++) {
+            bulkNames.add(ContactDataSet.name(i * (contacts / BULK_SIZE)));
+        }
+        // pages are limited, so the middle of the table is reached with several pages
+        String token = null;
+        for (int skipped = 0; skipped < contacts / 2; skipped += ContactPage.MAX_PAGE_SIZE) {
+            int pageSize = Math.min(ContactPage.MAX_PAGE_SIZE, contacts / 2 - skipped);
+            token = addressBook.getContactsPage(ContactSortKey.NAME, token, pageSize).getContinuationToken();
+        }
+        middlePageToken = token;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    /**
+     * AddressBook selects its DAO with a qualifier, so the benchmark replaces the injected field of the proxy target.
+     */
+    private void injectContactDao(ContactDao contactDao) throws Exception {
+        Object target = ((Advised) addressBook).getTargetSource().getTarget();
+        Field field = ReflectionUtils.findField(AddressBook.class, "contactDao");
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, contactDao);
+    }
+
+    private String randomName() {
+        return ContactDataSet.name(ThreadLocalRandom.current().nextInt(contacts));
+    }
+
+    @Benchmark
+    public Contact saveContact() {
+        Contact contact = new Contact();
+        contact.setName("saved-" + savedCounter.incrementAndGet());
+        contact.setPhoneNumber("1234567890");
+        return addressBook.saveContact(contact);
+    }
+
+    @Benchmark
+    public boolean hasContactPhoneNumber() {
+        return addressBook.hasContactPhoneNumber(randomName());
+    }
+
+    @Benchmark
+    public boolean hasContactPhoneNumberWithCode() {
+        return addressBook.hasContactPhoneNumberWithCode(randomName(), "123");
+    }
+
+    @Benchmark
+    public String getPhoneNumber() {
+        return addressBook.getPhoneNumber(randomName());
+    }
+
+    @Benchmark
+    public boolean checkContactNameUnique() {
+        return addressBook.checkContactNameUnique(randomName());
+    }
+
+    @Benchmark
+    public Map<String, String> getPhoneNumbersBulk() {
+        return addressBook.getPhoneNumbers(bulkNames);
+    }
+
+    @Benchmark
+    public int getContactsAmount() {
+        return addressBook.getContactsAmount();
+    }
+
+    @Benchmark
+    public List<String> getNamesTruncatedLength() {
+        return addressBook.getNamesTtruncatedLenght(5);
+    }
+
+    @Benchmark
+    public List<Contact> getAllContacts() {
+        return addressBook.getAllContacts();
+    }
+
+    @Benchmark
+    public List<Contact> getAllContactsWithPhoneNumber() {
+        return addressBook.getAllContactsWithPhoneNumber();
+    }
+
+    @Benchmark
+    public List<Contact> getAllContactsWithPhoneNumberCode() {
+        return addressBook.getAllContactsWithPhoneNumber("123");
+    }
+
+    @Benchmark
+    public List<String> getContactNamesStartingWith() {
+        return addressBook.getContactNamesStartingWith("contact-0000", 10);
+    }
+
+    @Benchmark
+    public ContactPage getFirstPage() {
+        return addressBook.getContactsPage(ContactSortKey.NAME, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public ContactPage getMiddlePage() {
+        return addressBook.getContactsPage(ContactSortKey.NAME, middlePageToken, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,79 @@
+package refactor_adressbook.benchmark;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import refactor_adressbook.dao.CachingContactDao;
+import refactor_adressbook.dao.ContactDao;
+import refactor_adressbook.service.ConnectionFactory;
+import refactor_adressbook.service.ResourcesUtil;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.Properties;
+
+/**
+ * Spring context of the address book on top of embedded in-memory H2 database. Both {@code contactDaoJdbc}
+ * and {@code contactRepository} work with the same database, so they can be compared on the same data.
+ */
+@Configuration
+@EnableTransactionManagement
+@EnableJpaRepositories(basePackages = "refactor_adressbook.dao", entityManagerFactoryRef = "myEmf")
+@ComponentScan(basePackages = {"refactor_adressbook.dao", "refactor_adressbook.service", "refactor_adressbook.monitoring"},
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, value = ConnectionFactory.class))
+public class BenchmarkConfig {
+    static final String URL = "jdbc:h2:mem:contacts;DB_CLOSE_DELAY=-1";
+    static final String LOGIN = "sa";
+    static final String PASSWORD = "";
+    private static final int CACHE_MAX_ENTRIES = 100_000;
+
+    @Bean
+    public DataSource dataSource() {
+        return new DriverManagerDataSource(URL, LOGIN, PASSWORD);
+    }
+
+    @Bean
+    public ConnectionFactory connectionFactory() {
+        return new ConnectionFactory(new ResourcesUtil() {
+            @Override
+            public Properties loadPropertiesFromResources(String fileName) {
+                Properties properties = new Properties();
+                properties.setProperty("url", URL);
+                properties.setProperty("login", LOGIN);
+                properties.setProperty("password", PASSWORD);
+                return properties;
+            }
+        });
+    }
+
+    @Bean
+    public CachingContactDao cachingContactDao(@Qualifier("contactRepository") ContactDao contactRepository) {
+        return new CachingContactDao(contactRepository, CACHE_MAX_ENTRIES);
+    }
+
+    @Bean
+    public LocalContainerEntityManagerFactoryBean myEmf(DataSource dataSource) {
+        LocalContainerEntityManagerFactoryBean emf = new LocalContainerEntityManagerFactoryBean();
+        emf.setDataSource(dataSource);
+        emf.setPackagesToScan("refactor_adressbook.model");
+        emf.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        Properties properties = new Properties();
+        // schema is not generated, it is created by ContactDataSet for both DAOs
+        properties.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        emf.setJpaProperties(properties);
+        return emf;
+    }
+
+    @Bean
+    public JpaTransactionManager transactionManager(EntityManagerFactory myEmf) {
+        return new JpaTransactionManager(myEmf);
+    }
+}
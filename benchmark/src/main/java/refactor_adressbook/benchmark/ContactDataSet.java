@@ -0,0 +1,70 @@
+package refactor_adressbook.benchmark;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Creates the contact table and fills it with generated contacts.
+ * <p>
+ * Contact {@code i} is named {@code contact-<i padded to 8 digits>}. Every third contact has no phone number,
+ * the others have a 10 digit phone number with 3 digit code {@code i % 1000}.
+ */
+public class ContactDataSet {
+    private static final int BATCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+
+    public ContactDataSet(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public static String name(int i) {
+        return String.format("contact-%08d", i);
+    }
+
+    public static String phoneNumber(int i) {
+        return i % 3 == 0 ? null : String.format("%03d%07d", i % 1000, i);
+    }
+
+    /**
+     * Drop and create the contact table and insert {@param amount} contacts.
+     *
+     * @param amount amount of contacts
+     * @throws SQLException if a database access error occurs
+     */
+    public void create(int amount) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("DROP TABLE IF EXISTS contact");
+                statement.execute("DROP SEQUENCE IF EXISTS hibernate_sequence");
+                // both DAOs take ids from hibernate_sequence, the default is used only by the batch insert below
+                statement.execute("CREATE SEQUENCE hibernate_sequence");
+                statement.execute("CREATE TABLE contact ("
+                        + "id BIGINT DEFAULT hibernate_sequence.NEXTVAL PRIMARY KEY, "
+                        + "name VARCHAR(100) NOT NULL UNIQUE, "
+                        + "phone_number VARCHAR(15), "
+                        + "date_of_creation DATE NOT NULL)");
+            }
+            connection.setAutoCommit(false);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO contact (name, phone_number, date_of_creation) VALUES (?, ?, ?)")) {
+                Date now = new Date(System.currentTimeMillis());
+                for (int i = 0; i < amount; i++) {
+                    statement.setString(1, name(i));
+                    statement.setString(2, phoneNumber(i));
+                    statement.setDate(3, now);
+                    statement.addBatch();
+                    if ((i + 1) % BATCH_SIZE == 0) {
+                        statement.executeBatch();
+                    }
+                }
+                statement.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+}
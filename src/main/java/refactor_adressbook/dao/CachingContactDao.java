@@ -0,0 +1,357 @@
+package refactor_adressbook.dao;
+
+import cachemap.CacheMap;
+import cachemap.CacheMapImpl;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import refactor_adressbook.model.Contact;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through cache for {@link ContactDao#findContactByName(String)} on top of another {@link ContactDao}.
+ * Found contacts and names of absent contacts are cached in separate {@link CacheMap}s with own time to live,
+ * so repeated lookups of the same name do not reach the database. Saving a contact drops cached entries
+ * for its name, and the saved contact is cached only after the transaction commits, so rolled back contacts
+ * are never served from the cache. Phone number checks are answered from the same cache.
+ * All other methods are delegated as is.
+ * <p>
+ * Names are spread over segments with own lock and own CacheMaps, so concurrent lookups of different names
+ * rarely wait for each other. Every segment keeps at most its share of {@code maxEntries}: when it is full,
+ * its expired entries are dropped, and if it is still mostly full, the whole segment is dropped.
+ * <p>
+ * The delegate and the size are set in the Spring context, an example is in context.xml.
+ * Cached {@link Contact} instances are shared between callers and must not be modified.
+ * Hit and miss counts are exported through JMX.
+ */
+@ManagedResource(description = "Cache of lookups by name")
+public class CachingContactDao implements ContactDao {
+    private static final long DEFAULT_HIT_TIME_TO_LIVE = 60 * 1000;
+    private static final long DEFAULT_MISS_TIME_TO_LIVE = 5 * 1000;
+    private static final int SEGMENTS = 16;
+
+    private final ContactDao delegate;
+    private final int maxEntries;
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * @param delegate   DAO which is queried for names that are not cached
+     * @param maxEntries max amount of cached contacts and names of absent contacts
+     */
+    public CachingContactDao(ContactDao delegate, int maxEntries) {
+        if (maxEntries < SEGMENTS) {
+            throw new IllegalArgumentException("max entries can not be less than " + SEGMENTS);
+        }
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(maxEntries / SEGMENTS);
+        }
+    }
+
+    @Override
+    public Contact save(Contact contact) {
+        return cacheSaved(delegate.save(contact));
+    }
+
+    @Override
+    public Contact insert(Contact contact) {
+        return cacheSaved(delegate.insert(contact));
+    }
+
+    @Override
+    public Contact findContactByName(String name) {
+        if (name == null) {
+            return delegate.findContactByName(null);
+        }
+        Segment segment = segmentOf(name);
+        Contact cached = segment.get(name);
+        if (cached != null) {
+            hitCount.increment();
+            return cached != Segment.ABSENT ? cached : null;
+        }
+        missCount.increment();
+        Contact contact = delegate.findContactByName(name);
+        if (contact != null) {
+            segment.putHit(name, contact);
+        } else {
+            segment.putMiss(name);
+        }
+        return contact;
+    }
+
+    @Override
+    public boolean hasPhoneNumber(String name) {
+        Contact contact = findContactByName(name);
+        return contact != null && contact.getPhoneNumber() != null;
+    }
+
+    @Override
+    public String findPhoneNumberByName(String name) {
+        Contact contact = findContactByName(name);
+        return contact != null ? contact.getPhoneNumber() : null;
+    }
+
+    @Override
+    public List<String> findNamesTruncated(int nameLength) {
+        return delegate.findNamesTruncated(nameLength);
+    }
+
+    @Override
+    public List<Contact> findContactsByNames(Collection<String> names) {
+        List<Contact> contacts = new ArrayList<>(names.size());
+        Set<String> notCached = new LinkedHashSet<>();
+        for (String name : new LinkedHashSet<>(names)) {
+            if (name == null) {
+                continue;
+            }
+            Contact cached = segmentOf(name).get(name);
+            if (cached != null) {
+                hitCount.increment();
+                if (cached != Segment.ABSENT) {
+                    contacts.add(cached);
+                }
+            } else {
+                missCount.increment();
+                notCached.add(name);
+            }
+        }
+        if (notCached.isEmpty()) {
+            return contacts;
+        }
+        List<Contact> found = delegate.findContactsByNames(notCached);
+        for (Contact contact : found) {
+            segmentOf(contact.getName()).putHit(contact.getName(), contact);
+            notCached.remove(contact.getName());
+        }
+        notCached.forEach(name -> segmentOf(name).putMiss(name));
+        contacts.addAll(found);
+        return contacts;
+    }
+
+    @Override
+    public List<Contact> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public int getContactsAmount() {
+        return delegate.getContactsAmount();
+    }
+
+    @Override
+    public ContactPage findPage(ContactSortKey sortKey, String continuationToken, int pageSize) {
+        return delegate.findPage(sortKey, continuationToken, pageSize);
+    }
+
+    /**
+     * Remove cached lookup results for the given name.
+     *
+     * @param name contact name
+     */
+    public void invalidate(String name) {
+        segmentOf(name).remove(name);
+    }
+
+    /**
+     * Remove all cached lookup results.
+     */
+    @ManagedOperation(description = "Remove all cached lookup results")
+    public void invalidateAll() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * Sets how long found contacts are kept in the cache.
+     */
+    public void setHitTimeToLive(long timeToLive) {
+        for (Segment segment : segments) {
+            segment.setHitTimeToLive(timeToLive);
+        }
+    }
+
+    /**
+     * Sets how long names of absent contacts are kept in the cache.
+     */
+    public void setMissTimeToLive(long timeToLive) {
+        for (Segment segment : segments) {
+            segment.setMissTimeToLive(timeToLive);
+        }
+    }
+
+    @ManagedAttribute(description = "Max amount of cached contacts and names of absent contacts")
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Get amount of live cached contacts and names of absent contacts. Every segment is scanned.
+     */
+    @ManagedAttribute(description = "Amount of cached contacts and names of absent contacts")
+    public int getSize() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Get amount of lookups answered from the cache, including cached absent contacts.
+     */
+    @ManagedAttribute(description = "Lookups answered from the cache, including cached absent contacts")
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Get amount of lookups that reached the database.
+     */
+    @ManagedAttribute(description = "Lookups that reached the database")
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Get share of lookups answered from the cache.
+     *
+     * @return hit rate from 0 to 1, or 0 if there were no lookups
+     */
+    @ManagedAttribute(description = "Share of lookups answered from the cache")
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    /**
+     * Drop cached entries for the saved name and cache the saved contact after commit. If the transaction
+     * is rolled back, entries cached during it (for example, the uncommitted contact read back by the same
+     * transaction) are dropped again.
+     */
+    private Contact cacheSaved(Contact saved) {
+        String name = saved.getName();
+        invalidate(name);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            segmentOf(name).putHit(name, saved);
+            return saved;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_COMMITTED) {
+                    segmentOf(name).putHit(name, saved);
+                } else {
+                    invalidate(name);
+                }
+            }
+        });
+        return saved;
+    }
+
+    private Segment segmentOf(String name) {
+        int hash = name.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    /**
+     * Part of the cache guarded by its own lock.
+     */
+    private static class Segment {
+        /**
+         * Marker of a cached absent contact.
+         */
+        static final Contact ABSENT = new Contact();
+
+        private final CacheMap<String, Contact> hits = new CacheMapImpl<>();
+        private final CacheMap<String, Boolean> misses = new CacheMapImpl<>();
+        private final int capacity;
+        /**
+         * Upper bound of the amount of entries in both maps including expired ones, CacheMap does not drop
+         * expired entries by itself.
+         */
+        private int entries;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+            hits.setTimeToLive(DEFAULT_HIT_TIME_TO_LIVE);
+            misses.setTimeToLive(DEFAULT_MISS_TIME_TO_LIVE);
+        }
+
+        /**
+         * @return cached contact, {@link #ABSENT} for a cached absent contact or null if the name is not cached
+         */
+        synchronized Contact get(String name) {
+            Contact contact = hits.get(name);
+            if (contact != null) {
+                return contact;
+            }
+            return misses.containsKey(name) ? ABSENT : null;
+        }
+
+        synchronized void putHit(String name, Contact contact) {
+            misses.remove(name);
+            makeRoom();
+            hits.put(name, contact);
+        }
+
+        synchronized void putMiss(String name) {
+            // contact could be saved while the database was queried
+            if (!hits.containsKey(name)) {
+                makeRoom();
+                misses.put(name, Boolean.TRUE);
+            }
+        }
+
+        synchronized void remove(String name) {
+            hits.remove(name);
+            misses.remove(name);
+        }
+
+        synchronized void clear() {
+            hits.clear();
+            misses.clear();
+            entries = 0;
+        }
+
+        synchronized void setHitTimeToLive(long timeToLive) {
+            hits.setTimeToLive(timeToLive);
+        }
+
+        synchronized void setMissTimeToLive(long timeToLive) {
+            misses.setTimeToLive(timeToLive);
+        }
+
+        synchronized int size() {
+            return hits.size() + misses.size();
+        }
+
+        /**
+         * Make room for one more entry. The segment is scanned only when it is full, and after a scan
+         * at least a quarter of it is free, so a scan happens at most once per {@code capacity / 4} puts.
+         */
+        private void makeRoom() {
+            if (entries >= capacity) {
+                hits.clearExpired();
+                misses.clearExpired();
+                entries = hits.size() + misses.size();
+                if (entries > capacity - capacity / 4 - 1) {
+                    clear();
+                }
+            }
+            entries++;
+        }
+    }
+}
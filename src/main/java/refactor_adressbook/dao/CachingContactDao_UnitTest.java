@@ -0,0 +1,191 @@
+package refactor_adressbook.dao;
+
+import cachemap.Clock;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import refactor_adressbook.model.Contact;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static refactor_adressbook.dao.InMemoryContactDao.contact;
+
+/**
+ * JUnit test case for {@link CachingContactDao}. Time to live is checked with {@link Clock}.
+ */
+public class CachingContactDao_UnitTest {
+    final static long HIT_TIME_TO_LIVE = 1000;
+    final static long MISS_TIME_TO_LIVE = 100;
+    final static int MAX_ENTRIES = 160;
+
+    InMemoryContactDao delegate;
+    CachingContactDao cache;
+
+    @Before
+    public void setUp() throws Exception {
+        Clock.setTime(1000);
+        delegate = new InMemoryContactDao();
+        cache = new CachingContactDao(delegate, MAX_ENTRIES);
+        cache.setHitTimeToLive(HIT_TIME_TO_LIVE);
+        cache.setMissTimeToLive(MISS_TIME_TO_LIVE);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Clock.clearTime();
+    }
+
+    @Test
+    public void testHitTimeToLive() throws Exception {
+        delegate.store(contact("apple", "123"));
+        assertEquals("123", cache.findContactByName("apple").getPhoneNumber());
+        Clock.setTime(1999);
+        assertEquals("123", cache.findPhoneNumberByName("apple"));
+        assertTrue(cache.hasPhoneNumber("apple"));
+        assertEquals(1, delegate.getLookups());
+
+        Clock.setTime(2000);
+        assertNotNull(cache.findContactByName("apple"));
+        assertEquals(2, delegate.getLookups());
+    }
+
+    @Test
+    public void testMissTimeToLive() throws Exception {
+        assertNull(cache.findContactByName("apple"));
+        delegate.store(contact("apple", "123"));
+        Clock.setTime(1099);
+        assertNull(cache.findContactByName("apple"));
+        assertEquals(1, delegate.getLookups());
+
+        Clock.setTime(1100);
+        assertNotNull(cache.findContactByName("apple"));
+        assertEquals(2, delegate.getLookups());
+    }
+
+    @Test
+    public void testSaveWithoutTransaction() throws Exception {
+        assertNull(cache.findContactByName("apple"));
+        cache.insert(contact("apple", "123"));
+        assertEquals("123", cache.findPhoneNumberByName("apple"));
+        assertEquals(1, delegate.getLookups());
+    }
+
+    @Test
+    public void testSaveIsCachedAfterCommit() throws Exception {
+        assertNull(cache.findContactByName("apple"));
+        TransactionSynchronizationManager.initSynchronization();
+        cache.save(contact("apple", "123"));
+
+        // cached miss is dropped by save, but the contact is not cached before commit
+        assertNotNull(cache.findContactByName("apple"));
+        assertEquals(2, delegate.getLookups());
+        cache.invalidate("apple");
+
+        complete(TransactionSynchronization.STATUS_COMMITTED);
+        assertEquals("123", cache.findPhoneNumberByName("apple"));
+        assertEquals(2, delegate.getLookups());
+    }
+
+    @Test
+    public void testRolledBackSaveIsNotCached() throws Exception {
+        assertNull(cache.findContactByName("apple"));
+        TransactionSynchronizationManager.initSynchronization();
+        cache.insert(contact("apple", "123"));
+        // the same transaction reads its uncommitted contact
+        assertNotNull(cache.findContactByName("apple"));
+
+        delegate.remove("apple");
+        complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertNull(cache.findContactByName("apple"));
+        assertFalse(cache.hasPhoneNumber("apple"));
+        assertEquals(3, delegate.getLookups());
+    }
+
+    @Test
+    public void testBulkLookup() throws Exception {
+        delegate.store(contact("apple", "123"));
+        delegate.store(contact("orange", null));
+        assertNotNull(cache.findContactByName("apple"));
+
+        List<Contact> found = cache.findContactsByNames(Arrays.asList("apple", "orange", "pear", "apple"));
+        assertEquals(2, found.size());
+        assertEquals(Arrays.asList("orange", "pear"), delegate.getBulkLookups().get(0));
+
+        assertEquals(1, cache.findContactsByNames(Arrays.asList("orange", "pear")).size());
+        assertEquals(1, delegate.getBulkLookups().size());
+    }
+
+    @Test
+    public void testHitRate() throws Exception {
+        assertEquals(0, cache.getHitRate(), 0);
+        delegate.store(contact("apple", "123"));
+        cache.findContactByName("apple");
+        cache.findContactByName("apple");
+        cache.findContactByName("pear");
+        cache.findContactByName("pear");
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 0);
+    }
+
+    @Test
+    public void testInvalidateAll() throws Exception {
+        delegate.store(contact("apple", "123"));
+        cache.findContactByName("apple");
+        cache.findContactByName("pear");
+        cache.invalidateAll();
+        cache.findContactByName("apple");
+        cache.findContactByName("pear");
+        assertEquals(4, delegate.getLookups());
+    }
+
+    @Test
+    public void testSizeIsLimited() throws Exception {
+        for (int i = 0; i < 10_000; i++) {
+            cache.findContactByName("name-" + i);
+            assertTrue(cache.getSize() <= MAX_ENTRIES);
+        }
+        assertEquals(10_000, delegate.getLookups());
+    }
+
+    @Test
+    public void testExpiredEntriesMakeRoom() throws Exception {
+        for (int i = 0; i < MAX_ENTRIES; i++) {
+            cache.findContactByName("name-" + i);
+        }
+        delegate.store(contact("apple", "123"));
+        Clock.setTime(1000 + MISS_TIME_TO_LIVE);
+        for (int i = 0; i < 10 * MAX_ENTRIES; i++) {
+            cache.findContactByName("apple");
+        }
+        assertEquals(MAX_ENTRIES + 1, delegate.getLookups());
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void testLastLookupIsCachedWhenFull() throws Exception {
+        for (int i = 0; i < 10_000; i++) {
+            cache.findContactByName("name-" + i);
+            cache.findContactByName("name-" + i);
+        }
+        assertEquals(10_000, delegate.getLookups());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxEntries() throws Exception {
+        new CachingContactDao(delegate, 15);
+    }
+
+    private static void complete(int status) {
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
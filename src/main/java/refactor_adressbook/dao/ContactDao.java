@@ -2,9 +2,15 @@ package refactor_adressbook.dao;
 
 import refactor_adressbook.model.Contact;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ContactDao {
+    /**
+     * Max amount of names in one {@code IN (...)} query. Oracle does not allow more than 1000 expressions in a list.
+     */
+    int NAMES_CHUNK_SIZE = 1000;
+
     /**
      * Save contact to database. Database will generate {@code id} value.
      *
@@ -13,6 +19,16 @@ public interface ContactDao {
      */
     Contact save(Contact contact);
 
+    /**
+     * Save contact to database and write it immediately, so the unique constraint on {@code name}
+     * is checked within this call. Database will generate {@code id} value.
+     *
+     * @param contact a new contact to be saved in the database
+     * @return saved to database {@param contact} with generated {@code id}
+     * @throws org.springframework.dao.DuplicateKeyException if a contact with the same name already exists
+     */
+    Contact insert(Contact contact);
+
     /**
      * Find contact in database by {@param name}.
      *
@@ -21,6 +37,41 @@ public interface ContactDao {
      */
     Contact findContactByName(String name);
 
+    /**
+     * Check in database whether contact with {@param name} exists and has a phone number.
+     * Only existence is checked, contact is not loaded.
+     *
+     * @param name contact name by which need to check
+     * @return {@code true} if contact exists and its phone number is not null
+     */
+    boolean hasPhoneNumber(String name);
+
+    /**
+     * Find only phone number of contact in database by {@param name}.
+     *
+     * @param name contact name by which need to find
+     * @return phone number or null if a contact with {@param name} does not exist or has no phone number
+     */
+    String findPhoneNumberByName(String name);
+
+    /**
+     * Find all contact names truncated by database to the given length. Names shorter than
+     * {@param nameLength} are returned as is.
+     *
+     * @param nameLength max length of name, must be greater than 0
+     * @return list of all names truncated to the given {@param nameLength}
+     */
+    List<String> findNamesTruncated(int nameLength);
+
+    /**
+     * Find contacts in database by {@param names}. Names are queried in chunks of {@link #NAMES_CHUNK_SIZE},
+     * so the amount of queries does not depend on the amount of names within a chunk.
+     *
+     * @param names contact names by which need to find, duplicates are ignored
+     * @return found contacts in no particular order, contacts that do not exist are absent
+     */
+    List<Contact> findContactsByNames(Collection<String> names);
+
     /**
      * Find all contacts from database.
      *
@@ -34,4 +85,16 @@ public interface ContactDao {
      * @return amount of contacts in the database
      */
     int getContactsAmount();
+
+    /**
+     * Find page of contacts ordered by {@param sortKey} using keyset pagination. Page is fetched by index range
+     * starting after the last value of the previous page, so every page costs the same regardless of its depth.
+     *
+     * @param sortKey           key by which contacts are ordered
+     * @param continuationToken token of the previous page or null for the first page
+     * @param pageSize          max amount of contacts in the page, from 1 to {@link ContactPage#MAX_PAGE_SIZE}
+     * @return page of contacts with token for the next page
+     * @throws IllegalArgumentException if {@param continuationToken} is malformed or {@param pageSize} is invalid
+     */
+    ContactPage findPage(ContactSortKey sortKey, String continuationToken, int pageSize);
 }
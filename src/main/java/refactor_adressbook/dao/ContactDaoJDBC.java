@@ -1,37 +1,87 @@
 package refactor_adressbook.dao;
 
+import org.springframework.beans.factory.BeanNameAware;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Repository;
 import refactor_adressbook.model.Contact;
+import refactor_adressbook.monitoring.DaoMetrics;
 import refactor_adressbook.service.ConnectionFactory;
 
+import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 
 @Repository("contactDaoJdbc")
-public class ContactDaoJDBC implements ContactDao {
+public class ContactDaoJDBC implements ContactDao, BeanNameAware {
+    /**
+     * SQLSTATE of unique constraint violations. The only unique column filled by insert is {@code name}.
+     * Other integrity constraint violations, for example NOT NULL, are not reported as duplicates.
+     */
+    private static final String UNIQUE_VIOLATION = "23505";
+    /**
+     * Oracle reports unique constraint violations as ORA-00001 with generic SQLSTATE 23000.
+     */
+    private static final int ORACLE_UNIQUE_VIOLATION = 1;
+    private static final String ORACLE_INTEGRITY_CONSTRAINT_VIOLATION = "23000";
 
     @Autowired
     private ConnectionFactory connectionFactory;
 
+    @Autowired
+    private DaoMetrics daoMetrics;
+
+    /**
+     * Names of statement phases by names of methods, {@code <bean name>.<method name>.statement}.
+     */
+    private Map<String, String> statementPhases = statementPhases("contactDaoJdbc");
+
+    @Override
+    public void setBeanName(String name) {
+        statementPhases = statementPhases(name);
+    }
 
     @Override
     public Contact save(Contact contact) {
-        try (Connection connection = connectionFactory.getConnection();
-             PreparedStatement statement = connection.prepareStatement("INSERT INTO contact VALUES (?, ?, ?, ?)")) {
-            statement.setLong(1, contact.getId());
-            statement.setString(2, contact.getName());
-            statement.setString(3, contact.getPhoneNumber());
-            statement.setDate(4, new Date(contact.getDateOfCreation().getTime()));
-            statement.executeUpdate();
-            contact.setId(statement.getGeneratedKeys().getLong(1));
+        return insert(contact);
+    }
+
+    @Override
+    public Contact insert(Contact contact) {
+        // id is taken from the sequence used by Hibernate, the generated schema has no default for it
+        String sql = "INSERT INTO contact (id, name, phone_number, date_of_creation) "
+                + "VALUES (hibernate_sequence.nextval, ?, ?, ?)";
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql, new String[]{"id"})) {
+            statement.setString(1, contact.getName());
+            statement.setString(2, contact.getPhoneNumber());
+            statement.setDate(3, new Date(contact.getDateOfCreation().getTime()));
+            long start = daoMetrics.start();
+            int rows = statement.executeUpdate();
+            recordStatement(start, "insert", sql, 3, rows);
+            try (ResultSet generatedKeys = statement.getGeneratedKeys()) {
+                if (!generatedKeys.next()) {
+                    throw new JdbcDaoRuntimeExeption("Database did not return generated id of contact "
+                            + contact.getName(), null);
+                }
+                contact.setId(generatedKeys.getLong(1));
+            }
             return contact;
         } catch (SQLException e) {
+            recordStatementError("insert");
+            if (isUniqueViolation(e)) {
+                throw new DuplicateKeyException("Contact with name " + contact.getName() + " already exists", e);
+            }
             throw new JdbcDaoRuntimeExeption(e);
         }
     }
@@ -39,15 +89,106 @@ public class ContactDaoJDBC implements ContactDao {
     @Override
     public Contact findContactByName(String name) {
         Contact contact = null;
-        try (Connection connection = connectionFactory.getConnection();
-             PreparedStatement statement = connection.prepareStatement("SELECT * FROM contact WHERE name = ?")) {
+        String sql = "SELECT * FROM contact WHERE name = ?";
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
             statement.setString(1, name);
+            long start = daoMetrics.start();
             ResultSet resultSet = statement.executeQuery();
             if (resultSet.next()) {
                 contact = createContactFromResultSet(resultSet);
             }
+            recordStatement(start, "findContactByName", sql, 1, contact != null ? 1 : 0);
             return contact;
         } catch (SQLException e) {
+            recordStatementError("findContactByName");
+            throw new JdbcDaoRuntimeExeption(e);
+        }
+    }
+
+    @Override
+    public boolean hasPhoneNumber(String name) {
+        String sql = "SELECT 1 FROM contact WHERE name = ? AND phone_number IS NOT NULL";
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, name);
+            statement.setMaxRows(1);
+            long start = daoMetrics.start();
+            boolean found = statement.executeQuery().next();
+            recordStatement(start, "hasPhoneNumber", sql, 1, found ? 1 : 0);
+            return found;
+        } catch (SQLException e) {
+            recordStatementError("hasPhoneNumber");
+            throw new JdbcDaoRuntimeExeption(e);
+        }
+    }
+
+    @Override
+    public String findPhoneNumberByName(String name) {
+        String sql = "SELECT phone_number FROM contact WHERE name = ?";
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, name);
+            long start = daoMetrics.start();
+            ResultSet resultSet = statement.executeQuery();
+            boolean found = resultSet.next();
+            String phoneNumber = found ? resultSet.getString(1) : null;
+            recordStatement(start, "findPhoneNumberByName", sql, 1, found ? 1 : 0);
+            return phoneNumber;
+        } catch (SQLException e) {
+            recordStatementError("findPhoneNumberByName");
+            throw new JdbcDaoRuntimeExeption(e);
+        }
+    }
+
+    @Override
+    public List<String> findNamesTruncated(int nameLength) {
+        List<String> names = new ArrayList<>();
+        String sql = "SELECT SUBSTR(name, 1, ?) FROM contact";
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setInt(1, nameLength);
+            long start = daoMetrics.start();
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                names.add(resultSet.getString(1));
+            }
+            recordStatement(start, "findNamesTruncated", sql, 1, names.size());
+            return names;
+        } catch (SQLException e) {
+            recordStatementError("findNamesTruncated");
+            throw new JdbcDaoRuntimeExeption(e);
+        }
+    }
+
+    @Override
+    public List<Contact> findContactsByNames(Collection<String> names) {
+        List<String> distinctNames = new ArrayList<>(new LinkedHashSet<>(names));
+        List<Contact> contacts = new ArrayList<>(distinctNames.size());
+        if (distinctNames.isEmpty()) {
+            return contacts;
+        }
+        try (Connection connection = getConnection()) {
+            for (int from = 0; from < distinctNames.size(); from += NAMES_CHUNK_SIZE) {
+                List<String> chunk = distinctNames.subList(from, Math.min(from + NAMES_CHUNK_SIZE, distinctNames.size()));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                String sql = "SELECT * FROM contact WHERE name IN (" + placeholders + ")";
+                try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        statement.setString(i + 1, chunk.get(i));
+                    }
+                    long start = daoMetrics.start();
+                    int found = contacts.size();
+                    ResultSet resultSet = statement.executeQuery();
+                    while (resultSet.next()) {
+                        contacts.add(createContactFromResultSet(resultSet));
+                    }
+                    recordStatement(start, "findContactsByNames", sql, chunk.size(), contacts.size() - found);
+                }
+            }
+            return contacts;
+        } catch (SQLException e) {
+            recordStatementError("findContactsByNames");
             throw new JdbcDaoRuntimeExeption(e);
         }
     }
@@ -55,36 +196,134 @@ public class ContactDaoJDBC implements ContactDao {
     @Override
     public List<Contact> findAll() {
         List<Contact> contacts = new ArrayList<>();
-        try (Connection connection = connectionFactory.getConnection();
-             PreparedStatement statement = connection.prepareStatement("SELECT * FROM contact")) {
+        String sql = "SELECT * FROM contact";
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            long start = daoMetrics.start();
             ResultSet resultSet = statement.executeQuery();
             while (resultSet.next()) {
                 contacts.add(createContactFromResultSet(resultSet));
             }
+            recordStatement(start, "findAll", sql, 0, contacts.size());
             return contacts;
         } catch (SQLException e) {
+            recordStatementError("findAll");
             throw new JdbcDaoRuntimeExeption(e);
         }
     }
 
     @Override
     public int getContactsAmount() {
-        try (Connection connection = connectionFactory.getConnection();
-             PreparedStatement statement = connection.prepareStatement("SELECT * FROM contact")) {
+        String sql = "SELECT * FROM contact";
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            long start = daoMetrics.start();
             ResultSet resultSet = statement.executeQuery();
             resultSet.last();
-            return resultSet.getRow();
+            int amount = resultSet.getRow();
+            recordStatement(start, "getContactsAmount", sql, 0, amount);
+            return amount;
+        } catch (SQLException e) {
+            recordStatementError("getContactsAmount");
+            throw new JdbcDaoRuntimeExeption(e);
+        }
+    }
+
+    @Override
+    public ContactPage findPage(ContactSortKey sortKey, String continuationToken, int pageSize) {
+        ContactPage.checkPageSize(pageSize);
+        String after = ContactPage.decodeToken(sortKey, continuationToken);
+        String column = sortKey.getColumn();
+        // ROWNUM over the ordered subquery gives Oracle a stop key, so only pageSize + 1 rows are read and sorted
+        String sql = after == null
+                ? "SELECT * FROM (SELECT * FROM contact ORDER BY " + column + ") WHERE ROWNUM <= ?"
+                : "SELECT * FROM (SELECT * FROM contact WHERE " + column + " > ? ORDER BY " + column + ") WHERE ROWNUM <= ?";
+        List<Contact> contacts = new ArrayList<>();
+        try (Connection connection = getConnection();
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            if (after != null) {
+                if (sortKey == ContactSortKey.ID) {
+                    statement.setLong(index++, Long.parseLong(after));
+                } else {
+                    statement.setString(index++, after);
+                }
+            }
+            statement.setInt(index, pageSize + 1);
+            statement.setFetchSize(pageSize + 1);
+            long start = daoMetrics.start();
+            ResultSet resultSet = statement.executeQuery();
+            while (resultSet.next()) {
+                contacts.add(createContactFromResultSet(resultSet));
+            }
+            recordStatement(start, "findPage", sql, index, contacts.size());
+            return ContactPage.fromRows(contacts, sortKey, pageSize);
         } catch (SQLException e) {
+            recordStatementError("findPage");
             throw new JdbcDaoRuntimeExeption(e);
         }
     }
 
+    /**
+     * Get connection. Connection errors are counted by {@link ConnectionFactory}, so they are thrown
+     * as {@link JdbcDaoRuntimeExeption} and only statement errors reach {@link SQLException} handlers.
+     */
+    private Connection getConnection() {
+        try {
+            return connectionFactory.getConnection();
+        } catch (SQLException e) {
+            throw new JdbcDaoRuntimeExeption(e);
+        }
+    }
+
+    private static Map<String, String> statementPhases(String beanName) {
+        Map<String, String> phases = new HashMap<>();
+        for (Method method : ContactDao.class.getMethods()) {
+            phases.put(method.getName(), beanName + "." + method.getName() + ".statement");
+        }
+        return phases;
+    }
+
+    /**
+     * Record execution of a statement including reading of its rows.
+     */
+    private void recordStatement(long start, String method, String sql, int bindCount, long rows) {
+        daoMetrics.record(start, statementPhases.get(method), sql, bindCount, rows);
+    }
+
+    /**
+     * Record failed statement. Errors are counted even if sampling is off.
+     */
+    private void recordStatementError(String method) {
+        daoMetrics.recordError(statementPhases.get(method));
+    }
+
+    /**
+     * Create contact from the current row. Columns are read by name, because the schema generated by Hibernate
+     * does not keep the order of columns of the entity.
+     */
     private Contact createContactFromResultSet(ResultSet resultSet) throws SQLException {
         Contact contact = new Contact();
-        contact.setId(resultSet.getLong(1));
-        contact.setName(resultSet.getString(2));
-        contact.setPhoneNumber(resultSet.getString(3));
-        contact.setDateOfCreation(new Date(resultSet.getDate(4).getTime()));
+        contact.setId(resultSet.getLong("id"));
+        contact.setName(resultSet.getString("name"));
+        contact.setPhoneNumber(resultSet.getString("phone_number"));
+        contact.setDateOfCreation(new Date(resultSet.getDate("date_of_creation").getTime()));
         return contact;
     }
+
+    /**
+     * Check whether the first {@link SQLException} in the cause chain of {@param e} is a unique constraint violation.
+     * Also used by {@link ContactRepository} for exceptions translated by Spring.
+     */
+    static boolean isUniqueViolation(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                SQLException sqlException = (SQLException) cause;
+                return UNIQUE_VIOLATION.equals(sqlException.getSQLState())
+                        || (ORACLE_INTEGRITY_CONSTRAINT_VIOLATION.equals(sqlException.getSQLState())
+                        && sqlException.getErrorCode() == ORACLE_UNIQUE_VIOLATION);
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,202 @@
+package refactor_adressbook.dao;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import refactor_adressbook.model.Contact;
+import refactor_adressbook.monitoring.DaoMetrics;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static refactor_adressbook.dao.InMemoryContactDao.contact;
+
+/**
+ * JUnit test case for {@link ContactDaoJDBC} and {@link ContactRepository} on in-memory H2 database,
+ * see {@link H2TestConfig}. Both DAOs are checked with the same tests.
+ */
+@RunWith(Parameterized.class)
+public class ContactDao_UnitTest {
+    static AnnotationConfigApplicationContext context;
+
+    @Parameterized.Parameter
+    public String daoName;
+
+    ContactDao contactDao;
+    JdbcTemplate jdbcTemplate;
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> daoNames() {
+        return Arrays.asList(new Object[]{"contactDaoJdbc"}, new Object[]{"contactRepository"});
+    }
+
+    @BeforeClass
+    public static void createContext() throws Exception {
+        context = H2TestConfig.createContext();
+    }
+
+    @AfterClass
+    public static void closeContext() throws Exception {
+        context.close();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        contactDao = context.getBean(daoName, ContactDao.class);
+        jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+        jdbcTemplate.update("DELETE FROM contact");
+    }
+
+    @Test
+    public void testInsertGeneratesId() throws Exception {
+        Contact first = contactDao.insert(contact("apple", "123"));
+        Contact second = contactDao.insert(contact("banana", null));
+        assertNotNull(first.getId());
+        assertNotEquals(first.getId(), second.getId());
+        assertEquals(first.getId(), contactDao.findContactByName("apple").getId());
+        assertEquals("123", contactDao.findContactByName("apple").getPhoneNumber());
+    }
+
+    @Test
+    public void testInsertDuplicateName() throws Exception {
+        contactDao.insert(contact("apple", "123"));
+        try {
+            contactDao.insert(contact("apple", "456"));
+            fail();
+        } catch (DuplicateKeyException e) {
+            assertEquals("123", contactDao.findPhoneNumberByName("apple"));
+        }
+    }
+
+    @Test
+    public void testOtherViolationIsNotDuplicate() throws Exception {
+        // generated phone_number column holds 255 characters
+        String phoneNumber = String.join("", Collections.nCopies(300, "7"));
+        try {
+            contactDao.insert(contact("apple", phoneNumber));
+            fail();
+        } catch (RuntimeException e) {
+            assertFalse(e.toString(), e instanceof DuplicateKeyException);
+        }
+        assertNull(contactDao.findContactByName("apple"));
+    }
+
+    @Test
+    public void testOperationsAreRecorded() throws Exception {
+        DaoMetrics daoMetrics = context.getBean(DaoMetrics.class);
+        int sampleRate = daoMetrics.getSampleRate();
+        daoMetrics.setSampleRate(1);
+        try {
+            daoMetrics.reset();
+            contactDao.insert(contact("apple", "123"));
+            contactDao.findContactByName("apple");
+            assertEquals(1, daoMetrics.getStats(daoName + ".findContactByName").getLatency().getCount());
+            assertEquals(1, daoMetrics.getStats(daoName + ".findContactByName").getRows());
+            if (daoName.equals("contactDaoJdbc")) {
+                // statement phases are named once by bean name
+                assertEquals(1, daoMetrics.getStats("contactDaoJdbc.insert.statement").getLatency().getCount());
+            }
+        } finally {
+            daoMetrics.setSampleRate(sampleRate);
+        }
+    }
+
+    @Test
+    public void testFindContactsByNames() throws Exception {
+        contactDao.insert(contact("apple", "123"));
+        contactDao.insert(contact("banana", null));
+        List<Contact> found = contactDao.findContactsByNames(Arrays.asList("apple", "cherry", "banana", "apple"));
+        assertEquals(2, found.size());
+        assertEquals(new HashSet<>(Arrays.asList("apple", "banana")), names(found));
+        assertTrue(contactDao.findContactsByNames(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testFindContactsByNamesInChunks() throws Exception {
+        int amount = 2 * ContactDao.NAMES_CHUNK_SIZE + 1;
+        insertContacts(amount);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < amount; i++) {
+            names.add(name(i));
+            // duplicates in other chunks and absent names do not add contacts
+            names.add(name(amount - 1 - i));
+            names.add(name(amount + i));
+        }
+        List<Contact> found = contactDao.findContactsByNames(names);
+        assertEquals(amount, found.size());
+        assertEquals(amount, names(found).size());
+        assertTrue(names(found).contains(name(ContactDao.NAMES_CHUNK_SIZE)));
+        assertTrue(names(found).contains(name(amount - 1)));
+    }
+
+    @Test
+    public void testHasPhoneNumber() throws Exception {
+        contactDao.insert(contact("apple", "123"));
+        contactDao.insert(contact("banana", null));
+        assertTrue(contactDao.hasPhoneNumber("apple"));
+        assertFalse(contactDao.hasPhoneNumber("banana"));
+        assertFalse(contactDao.hasPhoneNumber("cherry"));
+    }
+
+    @Test
+    public void testFindPhoneNumberByName() throws Exception {
+        contactDao.insert(contact("apple", "123"));
+        contactDao.insert(contact("banana", null));
+        assertEquals("123", contactDao.findPhoneNumberByName("apple"));
+        assertNull(contactDao.findPhoneNumberByName("banana"));
+        assertNull(contactDao.findPhoneNumberByName("cherry"));
+    }
+
+    @Test
+    public void testFindNamesTruncated() throws Exception {
+        contactDao.insert(contact("apple", "123"));
+        contactDao.insert(contact("fig", null));
+        contactDao.insert(contact("kiwi", "456"));
+        List<String> names = contactDao.findNamesTruncated(4);
+        Collections.sort(names);
+        // names shorter than the length are returned whole
+        assertEquals(Arrays.asList("appl", "fig", "kiwi"), names);
+        assertTrue(contactDao.findNamesTruncated(1).containsAll(Arrays.asList("a", "f", "k")));
+    }
+
+    @Test
+    public void testFindNamesTruncatedOfEmptyTable() throws Exception {
+        assertTrue(contactDao.findNamesTruncated(4).isEmpty());
+    }
+
+    /**
+     * Insert contacts named by {@link #name(int)} with a single batch.
+     */
+    private void insertContacts(int amount) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < amount; i++) {
+            rows.add(new Object[]{name(i), i % 2 == 0 ? null : "7" + i, new Date()});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO contact (id, name, phone_number, date_of_creation) "
+                + "VALUES (hibernate_sequence.nextval, ?, ?, ?)", rows);
+    }
+
+    private static String name(int i) {
+        return String.format("name-%05d", i);
+    }
+
+    private static Set<String> names(List<Contact> contacts) {
+        Set<String> names = new HashSet<>();
+        contacts.forEach(contact -> names.add(contact.getName()));
+        return names;
+    }
+}
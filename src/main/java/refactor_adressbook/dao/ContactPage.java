@@ -0,0 +1,110 @@
+package refactor_adressbook.dao;
+
+import refactor_adressbook.model.Contact;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of contacts fetched with keyset pagination. The continuation token is opaque for callers:
+ * it holds the sort key and the last value of the page and is passed back to fetch the next page.
+ */
+public class ContactPage {
+    /**
+     * Max amount of contacts in one page. Pages are fetched with one extra row, so the limit keeps
+     * {@code pageSize + 1} far from overflow and every page in memory of the caller.
+     */
+    public static final int MAX_PAGE_SIZE = 10_000;
+
+    private static final String SEPARATOR = ":";
+
+    private final List<Contact> contacts;
+    private final String continuationToken;
+
+    public ContactPage(List<Contact> contacts, String continuationToken) {
+        this.contacts = Collections.unmodifiableList(contacts);
+        this.continuationToken = continuationToken;
+    }
+
+    /**
+     * Create page from rows fetched with limit {@code pageSize + 1}. The extra row is only used to find out
+     * whether the next page exists and is not returned.
+     *
+     * @param rows     rows ordered by {@param sortKey}
+     * @param sortKey  key by which rows are ordered
+     * @param pageSize max amount of contacts in the page
+     * @return page with continuation token or with null token if it is the last page
+     */
+    public static ContactPage fromRows(List<Contact> rows, ContactSortKey sortKey, int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new ContactPage(rows, null);
+        }
+        List<Contact> contacts = rows.subList(0, pageSize);
+        return new ContactPage(contacts, encodeToken(sortKey, contacts.get(pageSize - 1)));
+    }
+
+    /**
+     * Get last value of the previous page from continuation token.
+     *
+     * @param sortKey           key by which contacts are ordered
+     * @param continuationToken token of the previous page, may be null for the first page
+     * @return last value of {@param sortKey} on the previous page or null for the first page
+     * @throws IllegalArgumentException if token is malformed or was created for another sort key
+     */
+    public static String decodeToken(ContactSortKey sortKey, String continuationToken) {
+        if (continuationToken == null) {
+            return null;
+        }
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(continuationToken), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Continuation token is malformed", e);
+        }
+        String prefix = sortKey.name() + SEPARATOR;
+        if (!decoded.startsWith(prefix)) {
+            throw new IllegalArgumentException("Continuation token does not match sort key " + sortKey);
+        }
+        return decoded.substring(prefix.length());
+    }
+
+    /**
+     * Check that page size is valid.
+     *
+     * @param pageSize max amount of contacts in the page
+     * @throws IllegalArgumentException if {@param pageSize} is not greater than 0 or greater than {@link #MAX_PAGE_SIZE}
+     */
+    public static void checkPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("page size must be greater than 0");
+        }
+        if (pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("page size can not be greater than " + MAX_PAGE_SIZE);
+        }
+    }
+
+    private static String encodeToken(ContactSortKey sortKey, Contact last) {
+        String value = sortKey == ContactSortKey.ID ? String.valueOf(last.getId()) : last.getName();
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((sortKey.name() + SEPARATOR + value).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public List<Contact> getContacts() {
+        return contacts;
+    }
+
+    /**
+     * Get token for the next page.
+     *
+     * @return token or null if this is the last page
+     */
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    public boolean hasNext() {
+        return continuationToken != null;
+    }
+}
@@ -0,0 +1,95 @@
+package refactor_adressbook.dao;
+
+import org.junit.Test;
+import refactor_adressbook.model.Contact;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test case for continuation tokens of {@link ContactPage}.
+ */
+public class ContactPage_UnitTest {
+
+    @Test
+    public void testLastPageHasNoToken() throws Exception {
+        ContactPage page = ContactPage.fromRows(contacts(3), ContactSortKey.ID, 3);
+        assertEquals(3, page.getContacts().size());
+        assertNull(page.getContinuationToken());
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    public void testExtraRowIsNotReturned() throws Exception {
+        ContactPage page = ContactPage.fromRows(contacts(4), ContactSortKey.ID, 3);
+        assertEquals(3, page.getContacts().size());
+        assertEquals(Long.valueOf(3), page.getContacts().get(2).getId());
+        assertTrue(page.hasNext());
+    }
+
+    @Test
+    public void testIdTokenRoundTrip() throws Exception {
+        ContactPage page = ContactPage.fromRows(contacts(4), ContactSortKey.ID, 3);
+        assertEquals("3", ContactPage.decodeToken(ContactSortKey.ID, page.getContinuationToken()));
+    }
+
+    @Test
+    public void testNameTokenRoundTrip() throws Exception {
+        List<Contact> rows = contacts(2);
+        rows.get(0).setName("Zo\u00eb: 1/2+3");
+        ContactPage page = ContactPage.fromRows(rows, ContactSortKey.NAME, 1);
+        assertEquals("Zo\u00eb: 1/2+3", ContactPage.decodeToken(ContactSortKey.NAME, page.getContinuationToken()));
+    }
+
+    @Test
+    public void testFirstPageHasNoToken() throws Exception {
+        assertNull(ContactPage.decodeToken(ContactSortKey.NAME, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIdTokenIsRejectedForName() throws Exception {
+        ContactPage page = ContactPage.fromRows(contacts(4), ContactSortKey.ID, 3);
+        ContactPage.decodeToken(ContactSortKey.NAME, page.getContinuationToken());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNameTokenIsRejectedForId() throws Exception {
+        ContactPage page = ContactPage.fromRows(contacts(4), ContactSortKey.NAME, 3);
+        ContactPage.decodeToken(ContactSortKey.ID, page.getContinuationToken());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedToken() throws Exception {
+        ContactPage.decodeToken(ContactSortKey.ID, "not a token!");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPageSize() throws Exception {
+        ContactPage.checkPageSize(0);
+    }
+
+    @Test
+    public void testMaxPageSize() throws Exception {
+        ContactPage.checkPageSize(ContactPage.MAX_PAGE_SIZE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooLargePageSize() throws Exception {
+        ContactPage.checkPageSize(Integer.MAX_VALUE);
+    }
+
+    private static List<Contact> contacts(int amount) {
+        List<Contact> contacts = new ArrayList<>();
+        for (int i = 1; i <= amount; i++) {
+            Contact contact = new Contact();
+            contact.setId((long) i);
+            contact.setName("name-" + i);
+            contact.setDateOfCreation(new Date());
+            contacts.add(contact);
+        }
+        return contacts;
+    }
+}
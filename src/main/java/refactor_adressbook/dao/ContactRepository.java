@@ -1,13 +1,91 @@
 package refactor_adressbook.dao;
 
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import refactor_adressbook.model.Contact;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+
 public interface ContactRepository extends JpaRepository<Contact, Long>, ContactDao {
     @Override
     @Query("SELECT count(c) as row FROM Contact c")
     int getContactsAmount();
 
     Contact findContactByName(String name);
+
+    // scalar projections are not managed entities, so they do not get into the persistence context
+    @Query("SELECT count(c) FROM Contact c WHERE c.name = ?1 AND c.phoneNumber IS NOT NULL")
+    long countByNameWithPhoneNumber(String name);
+
+    @Override
+    default boolean hasPhoneNumber(String name) {
+        return countByNameWithPhoneNumber(name) > 0;
+    }
+
+    @Override
+    @Query("SELECT c.phoneNumber FROM Contact c WHERE c.name = ?1")
+    String findPhoneNumberByName(String name);
+
+    @Override
+    @Query("SELECT substring(c.name, 1, ?1) FROM Contact c")
+    List<String> findNamesTruncated(int nameLength);
+
+    List<Contact> findByNameIn(Collection<String> names);
+
+    @Override
+    default List<Contact> findContactsByNames(Collection<String> names) {
+        List<String> distinctNames = new ArrayList<>(new LinkedHashSet<>(names));
+        List<Contact> contacts = new ArrayList<>(distinctNames.size());
+        for (int from = 0; from < distinctNames.size(); from += NAMES_CHUNK_SIZE) {
+            contacts.addAll(findByNameIn(distinctNames.subList(from, Math.min(from + NAMES_CHUNK_SIZE, distinctNames.size()))));
+        }
+        return contacts;
+    }
+
+    @Override
+    default Contact insert(Contact contact) {
+        try {
+            return saveAndFlush(contact);
+        } catch (DataIntegrityViolationException e) {
+            // other violations, for example a too long value, are not duplicates
+            if (ContactDaoJDBC.isUniqueViolation(e)) {
+                throw new DuplicateKeyException("Contact with name " + contact.getName() + " already exists", e);
+            }
+            throw e;
+        }
+    }
+
+    List<Contact> findAllByOrderByIdAsc(Pageable pageable);
+
+    List<Contact> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    List<Contact> findAllByOrderByNameAsc(Pageable pageable);
+
+    List<Contact> findByNameGreaterThanOrderByNameAsc(String name, Pageable pageable);
+
+    @Override
+    default ContactPage findPage(ContactSortKey sortKey, String continuationToken, int pageSize) {
+        ContactPage.checkPageSize(pageSize);
+        String after = ContactPage.decodeToken(sortKey, continuationToken);
+        // first page request is used only as a limit, so no offset and no count query are generated
+        Pageable limit = new PageRequest(0, pageSize + 1);
+        List<Contact> contacts;
+        if (sortKey == ContactSortKey.ID) {
+            contacts = after == null
+                    ? findAllByOrderByIdAsc(limit)
+                    : findByIdGreaterThanOrderByIdAsc(Long.parseLong(after), limit);
+        } else {
+            contacts = after == null
+                    ? findAllByOrderByNameAsc(limit)
+                    : findByNameGreaterThanOrderByNameAsc(after, limit);
+        }
+        return ContactPage.fromRows(contacts, sortKey, pageSize);
+    }
 }
@@ -0,0 +1,25 @@
+package refactor_adressbook.dao;
+
+/**
+ * Columns by which contacts can be paged. Both columns are unique, so the last value of a page
+ * unambiguously defines where the next page starts.
+ */
+public enum ContactSortKey {
+    ID("id"),
+    NAME("name");
+
+    private final String column;
+
+    ContactSortKey(String column) {
+        this.column = column;
+    }
+
+    /**
+     * Get name of the database column behind this key.
+     *
+     * @return column name
+     */
+    public String getColumn() {
+        return column;
+    }
+}
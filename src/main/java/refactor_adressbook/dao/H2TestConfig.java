@@ -0,0 +1,79 @@
+package refactor_adressbook.dao;
+
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.transaction.annotation.EnableTransactionManagement;
+import refactor_adressbook.service.ConnectionFactory;
+import refactor_adressbook.service.ResourcesUtil;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.Properties;
+
+/**
+ * Spring context of both DAOs on top of in-memory H2 database for JUnit tests. The schema is generated by
+ * Hibernate as in dbContext.xml, so {@code id} has no default value and {@code name} is unique.
+ * <p>
+ * The class is not annotated with {@code @Configuration}, so component scan of the application does not pick it up.
+ * Every call of {@link #createContext()} gets an empty database.
+ */
+@EnableTransactionManagement
+@EnableJpaRepositories(basePackages = "refactor_adressbook.dao", entityManagerFactoryRef = "myEmf")
+@ComponentScan(basePackages = {"refactor_adressbook.dao", "refactor_adressbook.monitoring"})
+public class H2TestConfig {
+    static final String URL = "jdbc:h2:mem:contactDaoTest;DB_CLOSE_DELAY=-1";
+    static final String LOGIN = "sa";
+    static final String PASSWORD = "";
+
+    public static AnnotationConfigApplicationContext createContext() {
+        return new AnnotationConfigApplicationContext(H2TestConfig.class);
+    }
+
+    @Bean
+    public ResourcesUtil resourcesUtil() {
+        return new ResourcesUtil();
+    }
+
+    @Bean
+    public DataSource dataSource() {
+        return new DriverManagerDataSource(URL, LOGIN, PASSWORD);
+    }
+
+    @Bean
+    public ConnectionFactory connectionFactory() {
+        return new ConnectionFactory(new ResourcesUtil() {
+            @Override
+            public Properties loadPropertiesFromResources(String fileName) {
+                Properties properties = new Properties();
+                properties.setProperty("url", URL);
+                properties.setProperty("login", LOGIN);
+                properties.setProperty("password", PASSWORD);
+                return properties;
+            }
+        });
+    }
+
+    @Bean
+    public LocalContainerEntityManagerFactoryBean myEmf(DataSource dataSource) {
+        LocalContainerEntityManagerFactoryBean emf = new LocalContainerEntityManagerFactoryBean();
+        emf.setDataSource(dataSource);
+        emf.setPackagesToScan("refactor_adressbook.model");
+        emf.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        Properties properties = new Properties();
+        properties.setProperty("hibernate.hbm2ddl.auto", "create");
+        properties.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        emf.setJpaProperties(properties);
+        return emf;
+    }
+
+    @Bean
+    public JpaTransactionManager transactionManager(EntityManagerFactory myEmf) {
+        return new JpaTransactionManager(myEmf);
+    }
+}
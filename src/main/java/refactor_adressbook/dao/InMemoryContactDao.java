@@ -0,0 +1,177 @@
+package refactor_adressbook.dao;
+
+import org.springframework.dao.DuplicateKeyException;
+import refactor_adressbook.model.Contact;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * {@link ContactDao} which keeps contacts in memory for JUnit tests of classes on top of a DAO.
+ * Ids are generated on save and names are unique as in the database. Found contacts are copies,
+ * so callers can not change stored contacts.
+ * <p>
+ * Lookups by name and page requests are counted, and {@link #setOnPageRequest(Runnable)} runs an action
+ * before every page is read, for example to change contacts during a paged load.
+ */
+public class InMemoryContactDao implements ContactDao {
+    private final Map<Long, Contact> contacts = new TreeMap<>();
+    private long lastId;
+    private int lookups;
+    private final List<List<String>> bulkLookups = new ArrayList<>();
+    private int pageRequests;
+    private Runnable onPageRequest;
+
+    public static Contact contact(String name, String phoneNumber) {
+        Contact contact = new Contact();
+        contact.setName(name);
+        contact.setPhoneNumber(phoneNumber);
+        contact.setDateOfCreation(new Date());
+        return contact;
+    }
+
+    /**
+     * Store contact without counting it as a DAO call. A contact with the same name is replaced.
+     *
+     * @param contact contact to be stored, its {@code id} is generated
+     */
+    public void store(Contact contact) {
+        remove(contact.getName());
+        contact.setId(++lastId);
+        contacts.put(contact.getId(), copy(contact));
+    }
+
+    public void remove(String name) {
+        contacts.values().removeIf(contact -> contact.getName().equals(name));
+    }
+
+    /**
+     * @return amount of {@link #findContactByName(String)} calls
+     */
+    public int getLookups() {
+        return lookups;
+    }
+
+    /**
+     * @return names passed to every {@link #findContactsByNames(Collection)} call
+     */
+    public List<List<String>> getBulkLookups() {
+        return bulkLookups;
+    }
+
+    /**
+     * @return amount of {@link #findPage(ContactSortKey, String, int)} calls
+     */
+    public int getPageRequests() {
+        return pageRequests;
+    }
+
+    public void setOnPageRequest(Runnable onPageRequest) {
+        this.onPageRequest = onPageRequest;
+    }
+
+    @Override
+    public Contact save(Contact contact) {
+        return insert(contact);
+    }
+
+    @Override
+    public Contact insert(Contact contact) {
+        if (find(contact.getName()) != null) {
+            throw new DuplicateKeyException("Contact with name " + contact.getName() + " already exists");
+        }
+        store(contact);
+        return contact;
+    }
+
+    @Override
+    public Contact findContactByName(String name) {
+        lookups++;
+        Contact contact = find(name);
+        return contact != null ? copy(contact) : null;
+    }
+
+    @Override
+    public boolean hasPhoneNumber(String name) {
+        Contact contact = find(name);
+        return contact != null && contact.getPhoneNumber() != null;
+    }
+
+    @Override
+    public String findPhoneNumberByName(String name) {
+        Contact contact = find(name);
+        return contact != null ? contact.getPhoneNumber() : null;
+    }
+
+    @Override
+    public List<String> findNamesTruncated(int nameLength) {
+        return contacts.values().stream()
+                .map(contact -> contact.getName().substring(0, Math.min(nameLength, contact.getName().length())))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<Contact> findContactsByNames(Collection<String> names) {
+        bulkLookups.add(new ArrayList<>(names));
+        List<Contact> found = new ArrayList<>();
+        for (String name : new LinkedHashSet<>(names)) {
+            Contact contact = find(name);
+            if (contact != null) {
+                found.add(copy(contact));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public List<Contact> findAll() {
+        return contacts.values().stream().map(InMemoryContactDao::copy).collect(Collectors.toList());
+    }
+
+    @Override
+    public int getContactsAmount() {
+        return contacts.size();
+    }
+
+    @Override
+    public ContactPage findPage(ContactSortKey sortKey, String continuationToken, int pageSize) {
+        ContactPage.checkPageSize(pageSize);
+        pageRequests++;
+        String after = ContactPage.decodeToken(sortKey, continuationToken);
+        if (onPageRequest != null) {
+            onPageRequest.run();
+        }
+        List<Contact> rows = contacts.values().stream()
+                .filter(contact -> after == null || (sortKey == ContactSortKey.ID
+                        ? contact.getId() > Long.parseLong(after)
+                        : contact.getName().compareTo(after) > 0))
+                .sorted(sortKey == ContactSortKey.ID
+                        ? Comparator.comparing(Contact::getId)
+                        : Comparator.comparing(Contact::getName))
+                .limit(pageSize + 1)
+                .map(InMemoryContactDao::copy)
+                .collect(Collectors.toList());
+        return ContactPage.fromRows(rows, sortKey, pageSize);
+    }
+
+    private Contact find(String name) {
+        return contacts.values().stream()
+                .filter(contact -> contact.getName().equals(name))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static Contact copy(Contact contact) {
+        Contact copy = contact(contact.getName(), contact.getPhoneNumber());
+        copy.setId(contact.getId());
+        copy.setDateOfCreation(contact.getDateOfCreation());
+        return copy;
+    }
+}
@@ -0,0 +1,100 @@
+package refactor_adressbook.monitoring;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+import refactor_adressbook.dao.ContactDao;
+import refactor_adressbook.dao.ContactPage;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wraps every {@link ContactDao} bean into a proxy which measures its methods with {@link DaoMetrics}.
+ * Operations are named {@code <bean name>.<method name>}, so the time of {@code contactRepository} methods
+ * is the time of Hibernate work including its statements. Only {@link ContactDao} methods are measured,
+ * other public methods of the beans, for example JMX attributes, are not.
+ */
+@Component
+public class ContactDaoMonitoringPostProcessor implements BeanPostProcessor {
+
+    @Autowired
+    private DaoMetrics daoMetrics;
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (!(bean instanceof ContactDao)) {
+            return bean;
+        }
+        ProxyFactory proxyFactory = new ProxyFactory(bean);
+        // Spring Data repositories are JDK proxies and can only be proxied by interfaces
+        proxyFactory.setProxyTargetClass(!Proxy.isProxyClass(bean.getClass()));
+        proxyFactory.addAdvice(new MonitoringInterceptor(beanName));
+        return proxyFactory.getProxy();
+    }
+
+    /**
+     * Count rows in the result of a DAO method. Existence checks return {@code true} for a found row,
+     * and counts return the amount of counted rows.
+     */
+    static long countRows(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof ContactPage) {
+            return ((ContactPage) result).getContacts().size();
+        }
+        if (result instanceof Boolean) {
+            return (Boolean) result ? 1 : 0;
+        }
+        if (result instanceof Number) {
+            return ((Number) result).longValue();
+        }
+        return 1;
+    }
+
+    private class MonitoringInterceptor implements MethodInterceptor {
+        /**
+         * Operation names by names of {@link ContactDao} methods, built once per bean.
+         */
+        private final Map<String, String> operations = new HashMap<>();
+
+        MonitoringInterceptor(String beanName) {
+            for (Method method : ContactDao.class.getMethods()) {
+                operations.put(method.getName(), beanName + "." + method.getName());
+            }
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            String operation = operations.get(invocation.getMethod().getName());
+            if (operation == null) {
+                return invocation.proceed();
+            }
+            long start = daoMetrics.start();
+            Object result;
+            try {
+                result = invocation.proceed();
+            } catch (Throwable e) {
+                daoMetrics.recordError(operation);
+                throw e;
+            }
+            daoMetrics.record(start, operation, countRows(result));
+            return result;
+        }
+    }
+}
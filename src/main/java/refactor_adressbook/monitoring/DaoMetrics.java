@@ -0,0 +1,204 @@
+package refactor_adressbook.monitoring;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import refactor_adressbook.service.ResourcesUtil;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Date;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency histograms, row counts and error counts of {@link refactor_adressbook.dao.ContactDao} methods
+ * and of their phases (connection acquisition and statement execution), and the log of slow operations.
+ * Settings are loaded from monitoring.properties and can be changed through JMX.
+ * <p>
+ * Usage:
+ * <pre>
+ * long start = daoMetrics.start();
+ * ... do the work ...
+ * daoMetrics.record(start, "connection", 1);
+ * </pre>
+ * Every operation is timed, so operations slower than the threshold get into the slow query log even if sampling
+ * is off. Only histograms and row counts are sampled, with sampling off the cost of an operation is two reads
+ * of {@link System#nanoTime()}.
+ */
+@Component
+@ManagedResource(objectName = "refactor_adressbook:name=daoMetrics", description = "ContactDao metrics")
+public class DaoMetrics {
+    private static final Log log = LogFactory.getLog(DaoMetrics.class);
+
+    private final ConcurrentMap<String, OperationStats> stats = new ConcurrentHashMap<>();
+    private final Deque<SlowQuery> slowQueries = new ArrayDeque<>();
+    private volatile int sampleRate;
+    private volatile long slowQueryThresholdMillis;
+    private volatile int slowQueryLogSize;
+
+    @Autowired
+    public DaoMetrics(ResourcesUtil resourcesUtil) {
+        try {
+            Properties properties = resourcesUtil.loadPropertiesFromResources("monitoring.properties");
+            setSampleRate(Integer.parseInt(properties.getProperty("sampleRate", "0")));
+            setSlowQueryThresholdMillis(Long.parseLong(properties.getProperty("slowQueryThresholdMillis", "500")));
+            setSlowQueryLogSize(Integer.parseInt(properties.getProperty("slowQueryLogSize", "100")));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to load properties");
+        }
+    }
+
+    /**
+     * Start measuring of an operation.
+     *
+     * @return start time in nanoseconds
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record finished operation.
+     *
+     * @param start     value returned by {@link #start()}
+     * @param operation name of operation or phase
+     * @param rows      amount of rows returned or changed by the operation
+     */
+    public void record(long start, String operation, long rows) {
+        record(start, operation, null, 0, rows);
+    }
+
+    /**
+     * Record executed statement. Statements slower than the threshold are added to the slow query log,
+     * statistics are recorded only for sampled statements.
+     *
+     * @param start     value returned by {@link #start()}
+     * @param operation name of operation or phase
+     * @param sql       executed SQL
+     * @param bindCount amount of bound parameters
+     * @param rows      amount of rows returned or changed by the statement
+     */
+    public void record(long start, String operation, String sql, int bindCount, long rows) {
+        long nanos = System.nanoTime() - start;
+        if (nanos >= slowQueryThresholdMillis * 1_000_000) {
+            addSlowQuery(new SlowQuery(new Date(), operation, sql, bindCount, rows, nanos / 1000));
+        }
+        if (isSampled()) {
+            statsOf(operation).record(nanos, rows);
+        }
+    }
+
+    /**
+     * Record failed operation. Errors are counted even if sampling is off.
+     *
+     * @param operation name of operation or phase
+     */
+    public void recordError(String operation) {
+        statsOf(operation).recordError();
+    }
+
+    /**
+     * Get statistics of operation.
+     *
+     * @param operation name of operation or phase
+     * @return statistics or null if nothing was recorded
+     */
+    public OperationStats getStats(String operation) {
+        return stats.get(operation);
+    }
+
+    @ManagedAttribute(description = "Statistics of every operation and phase")
+    public Map<String, String> getOperationStats() {
+        Map<String, String> result = new TreeMap<>();
+        stats.forEach((operation, operationStats) -> result.put(operation, operationStats.toString()));
+        return result;
+    }
+
+    @ManagedAttribute(description = "Last slow operations, the newest first")
+    public synchronized String[] getSlowQueries() {
+        return slowQueries.stream().map(SlowQuery::toString).toArray(String[]::new);
+    }
+
+    @ManagedOperation(description = "Clear statistics and the slow query log")
+    public synchronized void reset() {
+        stats.clear();
+        slowQueries.clear();
+    }
+
+    @ManagedAttribute(description = "0 - sampling is off, 1 - every operation is measured, N - one of N operations")
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    @ManagedAttribute
+    public void setSampleRate(int sampleRate) {
+        if (sampleRate < 0) {
+            throw new IllegalArgumentException("sampleRate can not be < 0");
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    @ManagedAttribute(description = "Operations not faster than this are added to the slow query log")
+    public long getSlowQueryThresholdMillis() {
+        return slowQueryThresholdMillis;
+    }
+
+    @ManagedAttribute
+    public void setSlowQueryThresholdMillis(long slowQueryThresholdMillis) {
+        if (slowQueryThresholdMillis < 0) {
+            throw new IllegalArgumentException("slowQueryThresholdMillis can not be < 0");
+        }
+        this.slowQueryThresholdMillis = slowQueryThresholdMillis;
+    }
+
+    @ManagedAttribute(description = "Max amount of entries in the slow query log")
+    public int getSlowQueryLogSize() {
+        return slowQueryLogSize;
+    }
+
+    @ManagedAttribute
+    public synchronized void setSlowQueryLogSize(int slowQueryLogSize) {
+        if (slowQueryLogSize < 0) {
+            throw new IllegalArgumentException("slowQueryLogSize can not be < 0");
+        }
+        this.slowQueryLogSize = slowQueryLogSize;
+        while (slowQueries.size() > slowQueryLogSize) {
+            slowQueries.removeLast();
+        }
+    }
+
+    private boolean isSampled() {
+        int rate = sampleRate;
+        return rate == 1 || (rate > 1 && ThreadLocalRandom.current().nextInt(rate) == 0);
+    }
+
+    private OperationStats statsOf(String operation) {
+        OperationStats operationStats = stats.get(operation);
+        return operationStats != null ? operationStats : stats.computeIfAbsent(operation, key -> new OperationStats());
+    }
+
+    private void addSlowQuery(SlowQuery slowQuery) {
+        if (log.isWarnEnabled()) {
+            log.warn("Slow operation: " + slowQuery);
+        }
+        synchronized (this) {
+            if (slowQueryLogSize == 0) {
+                return;
+            }
+            if (slowQueries.size() == slowQueryLogSize) {
+                slowQueries.removeLast();
+            }
+            slowQueries.addFirst(slowQuery);
+        }
+    }
+}
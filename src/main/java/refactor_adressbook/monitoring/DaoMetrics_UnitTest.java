@@ -0,0 +1,135 @@
+package refactor_adressbook.monitoring;
+
+import org.junit.Before;
+import org.junit.Test;
+import refactor_adressbook.dao.ContactPage;
+import refactor_adressbook.service.ResourcesUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test case for sampling and the slow query log of {@link DaoMetrics}.
+ */
+public class DaoMetrics_UnitTest {
+    DaoMetrics metrics;
+
+    @Before
+    public void setUp() throws Exception {
+        metrics = new DaoMetrics(new ResourcesUtil() {
+            @Override
+            public Properties loadPropertiesFromResources(String fileName) {
+                Properties properties = new Properties();
+                properties.setProperty("sampleRate", "1");
+                properties.setProperty("slowQueryThresholdMillis", "0");
+                properties.setProperty("slowQueryLogSize", "3");
+                return properties;
+            }
+        });
+    }
+
+    @Test
+    public void testSamplingOff() throws Exception {
+        metrics.setSampleRate(0);
+        metrics.setSlowQueryThresholdMillis(60_000);
+        metrics.record(metrics.start(), "find", 1);
+        assertNull(metrics.getStats("find"));
+        assertEquals(0, metrics.getSlowQueries().length);
+    }
+
+    @Test
+    public void testSlowQueriesAreLoggedWithSamplingOff() throws Exception {
+        metrics.setSampleRate(0);
+        metrics.record(metrics.start(), "find", "SELECT 1", 0, 1);
+        assertNull(metrics.getStats("find"));
+        assertEquals(1, metrics.getSlowQueries().length);
+        assertTrue(metrics.getSlowQueries()[0].contains("SELECT 1"));
+    }
+
+    @Test
+    public void testErrorsAreCountedWithSamplingOff() throws Exception {
+        metrics.setSampleRate(0);
+        metrics.recordError("find");
+        metrics.recordError("find");
+        assertEquals(2, metrics.getStats("find").getErrors());
+        assertEquals(0, metrics.getStats("find").getLatency().getCount());
+    }
+
+    @Test
+    public void testEveryOperationIsSampled() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            metrics.record(metrics.start(), "find", 2);
+        }
+        assertEquals(100, metrics.getStats("find").getLatency().getCount());
+        assertEquals(200, metrics.getStats("find").getRows());
+    }
+
+    @Test
+    public void testOneOfNIsSampled() throws Exception {
+        metrics.setSampleRate(10);
+        metrics.setSlowQueryLogSize(0);
+        metrics.setSlowQueryThresholdMillis(60_000);
+        for (int i = 0; i < 100_000; i++) {
+            metrics.record(metrics.start(), "find", 1);
+        }
+        long sampled = metrics.getStats("find").getLatency().getCount();
+        assertTrue("sampled " + sampled, sampled > 9_000 && sampled < 11_000);
+    }
+
+    @Test
+    public void testSlowQueryLogEviction() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            metrics.record(metrics.start(), "find" + i, "SELECT " + i, 1, i);
+        }
+        String[] slowQueries = metrics.getSlowQueries();
+        assertEquals(3, slowQueries.length);
+        assertTrue(slowQueries[0].contains("find5"));
+        assertTrue(slowQueries[1].contains("find4"));
+        assertTrue(slowQueries[2].contains("find3"));
+
+        metrics.setSlowQueryLogSize(1);
+        assertEquals(1, metrics.getSlowQueries().length);
+        assertTrue(metrics.getSlowQueries()[0].contains("find5"));
+
+        metrics.setSlowQueryLogSize(0);
+        metrics.record(metrics.start(), "find6", 0);
+        assertEquals(0, metrics.getSlowQueries().length);
+    }
+
+    @Test
+    public void testFastQueriesAreNotLogged() throws Exception {
+        metrics.setSlowQueryThresholdMillis(60_000);
+        metrics.record(metrics.start(), "find", "SELECT 1", 0, 1);
+        assertEquals(0, metrics.getSlowQueries().length);
+        assertEquals(1, metrics.getStats("find").getLatency().getCount());
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        metrics.record(metrics.start(), "find", 1);
+        metrics.reset();
+        assertNull(metrics.getStats("find"));
+        assertEquals(0, metrics.getSlowQueries().length);
+        assertTrue(metrics.getOperationStats().isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeSampleRate() throws Exception {
+        metrics.setSampleRate(-1);
+    }
+
+    @Test
+    public void testRowsOfDaoMethods() throws Exception {
+        assertEquals(0, ContactDaoMonitoringPostProcessor.countRows(null));
+        assertEquals(1, ContactDaoMonitoringPostProcessor.countRows("79001234567"));
+        assertEquals(3, ContactDaoMonitoringPostProcessor.countRows(Arrays.asList("a", "b", "c")));
+        assertEquals(0, ContactDaoMonitoringPostProcessor.countRows(
+                new ContactPage(Collections.emptyList(), null)));
+        assertEquals(1, ContactDaoMonitoringPostProcessor.countRows(Boolean.TRUE));
+        assertEquals(0, ContactDaoMonitoringPostProcessor.countRows(Boolean.FALSE));
+        assertEquals(42, ContactDaoMonitoringPostProcessor.countRows(42));
+    }
+}
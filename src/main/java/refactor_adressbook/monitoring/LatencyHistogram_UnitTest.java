@@ -0,0 +1,80 @@
+package refactor_adressbook.monitoring;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * JUnit test case for buckets and percentiles of {@link LatencyHistogram}.
+ */
+public class LatencyHistogram_UnitTest {
+    LatencyHistogram histogram;
+
+    @Before
+    public void setUp() throws Exception {
+        histogram = new LatencyHistogram();
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanMicros());
+        assertEquals(0, histogram.getMaxMicros());
+        assertEquals(0, histogram.getPercentileMicros(50));
+    }
+
+    @Test
+    public void testBucketBounds() throws Exception {
+        // bucket i holds latencies below 2^i microseconds
+        assertEquals(1, percentileOf(999));
+        assertEquals(2, percentileOf(1_000));
+        assertEquals(2, percentileOf(1_999));
+        assertEquals(4, percentileOf(2_000));
+        assertEquals(4, percentileOf(3_999));
+        assertEquals(8, percentileOf(4_000));
+        assertEquals(1024, percentileOf(1_000_000));
+        assertEquals(1024, percentileOf(1_023_999));
+        assertEquals(2048, percentileOf(1_024_000));
+    }
+
+    @Test
+    public void testLastBucketHoldsEverythingAbove() throws Exception {
+        histogram.record(Long.MAX_VALUE / 2);
+        assertEquals(1L << 39, histogram.getPercentileMicros(100));
+        assertEquals(Long.MAX_VALUE / 2 / 1000, histogram.getMaxMicros());
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+        for (int i = 0; i < 90; i++) {
+            histogram.record(3_000);
+        }
+        for (int i = 0; i < 9; i++) {
+            histogram.record(100_000);
+        }
+        histogram.record(5_000_000);
+        assertEquals(100, histogram.getCount());
+        assertEquals(4, histogram.getPercentileMicros(50));
+        assertEquals(4, histogram.getPercentileMicros(90));
+        assertEquals(128, histogram.getPercentileMicros(90.5));
+        assertEquals(128, histogram.getPercentileMicros(99));
+        assertEquals(8192, histogram.getPercentileMicros(99.5));
+        assertEquals(8192, histogram.getPercentileMicros(100));
+    }
+
+    @Test
+    public void testMeanAndMax() throws Exception {
+        histogram.record(1_000);
+        histogram.record(2_000);
+        histogram.record(6_000);
+        assertEquals(3, histogram.getMeanMicros());
+        assertEquals(6, histogram.getMaxMicros());
+    }
+
+    private long percentileOf(long nanos) {
+        LatencyHistogram single = new LatencyHistogram();
+        single.record(nanos);
+        return single.getPercentileMicros(100);
+    }
+}
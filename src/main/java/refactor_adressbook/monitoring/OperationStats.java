@@ -0,0 +1,44 @@
+package refactor_adressbook.monitoring;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies, row counts and error counts of one operation or of one phase of an operation.
+ */
+public class OperationStats {
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+
+    void record(long nanos, long rowCount) {
+        latency.record(nanos);
+        rows.add(rowCount);
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getRows() {
+        return rows.sum();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + latency.getCount()
+                + ", errors=" + getErrors()
+                + ", rows=" + getRows()
+                + ", meanUs=" + latency.getMeanMicros()
+                + ", p50Us<=" + latency.getPercentileMicros(50)
+                + ", p99Us<=" + latency.getPercentileMicros(99)
+                + ", maxUs=" + latency.getMaxMicros();
+    }
+}
@@ -0,0 +1,59 @@
+package refactor_adressbook.monitoring;
+
+import java.util.Date;
+
+/**
+ * Entry of the slow query log.
+ */
+public class SlowQuery {
+    private final Date time;
+    private final String operation;
+    private final String sql;
+    private final int bindCount;
+    private final long rows;
+    private final long micros;
+
+    public SlowQuery(Date time, String operation, String sql, int bindCount, long rows, long micros) {
+        this.time = time;
+        this.operation = operation;
+        this.sql = sql;
+        this.bindCount = bindCount;
+        this.rows = rows;
+        this.micros = micros;
+    }
+
+    public Date getTime() {
+        return time;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Get executed SQL.
+     *
+     * @return SQL or null if the operation is a DAO method whose SQL is not known
+     */
+    public String getSql() {
+        return sql;
+    }
+
+    public int getBindCount() {
+        return bindCount;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getMicros() {
+        return micros;
+    }
+
+    @Override
+    public String toString() {
+        return time + " " + operation + " " + micros + "us, rows=" + rows
+                + (sql != null ? ", binds=" + bindCount + ", sql=" + sql : "");
+    }
+}
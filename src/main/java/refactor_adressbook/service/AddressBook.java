@@ -2,15 +2,21 @@ package refactor_adressbook.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import refactor_adressbook.dao.ContactDao;
+import refactor_adressbook.dao.ContactPage;
+import refactor_adressbook.dao.ContactSortKey;
 import refactor_adressbook.model.Contact;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -20,6 +26,9 @@ public class AddressBook {
     @Qualifier(value = "contactRepository")
     private ContactDao contactDao;
 
+    @Autowired(required = false)
+    private ContactPrefixIndex prefixIndex;
+
     /**
      * Check the availability of the contact phone number.
      *
@@ -28,8 +37,7 @@ public class AddressBook {
      */
     @Transactional(readOnly = true)
     public boolean hasContactPhoneNumber(String contactName) {
-        Contact contact = contactDao.findContactByName(contactName);
-        return contact != null && contact.getPhoneNumber() != null;
+        return contactDao.hasPhoneNumber(contactName);
     }
 
     /**
@@ -41,9 +49,10 @@ public class AddressBook {
      */
     @Transactional(readOnly = true)
     public boolean hasContactPhoneNumberWithCode(String contactName, String phoneNumberCode) {
-        Contact contact = contactDao.findContactByName(contactName);
-        return contact != null && (contact.getPhoneNumber() != null && contact.getPhoneNumber()
-                .startsWith(phoneNumberCode));
+        String phoneNumber = isPrefixIndexAvailable()
+                ? prefixIndex.findPhoneNumber(contactName)
+                : contactDao.findPhoneNumberByName(contactName);
+        return phoneNumber != null && phoneNumber.startsWith(phoneNumberCode);
     }
 
     /**
@@ -54,8 +63,39 @@ public class AddressBook {
      */
     @Transactional(readOnly = true)
     public String getPhoneNumber(String contactName) {
-        Contact contact = contactDao.findContactByName(contactName);
-        return contact != null ? contact.getPhoneNumber() : null;
+        return contactDao.findPhoneNumberByName(contactName);
+    }
+
+    /**
+     * Check the availability of phone numbers for several contacts. All contacts are found with
+     * a few {@code IN (...)} queries instead of a query per contact.
+     *
+     * @param contactNames names of contacts
+     * @return map from every given name to {@code true} if contact exist and has phone number
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Boolean> hasContactPhoneNumbers(Collection<String> contactNames) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        contactNames.forEach(name -> result.put(name, false));
+        contactDao.findContactsByNames(contactNames)
+                .forEach(contact -> result.put(contact.getName(), contact.getPhoneNumber() != null));
+        return result;
+    }
+
+    /**
+     * Get phone numbers of several contacts by contact names. All contacts are found with
+     * a few {@code IN (...)} queries instead of a query per contact.
+     *
+     * @param contactNames names of contacts
+     * @return map from every given name to phone number or to null if a contact does not exist
+     */
+    @Transactional(readOnly = true)
+    public Map<String, String> getPhoneNumbers(Collection<String> contactNames) {
+        Map<String, String> result = new LinkedHashMap<>();
+        contactNames.forEach(name -> result.put(name, null));
+        contactDao.findContactsByNames(contactNames)
+                .forEach(contact -> result.put(contact.getName(), contact.getPhoneNumber()));
+        return result;
     }
 
     /**
@@ -79,10 +119,7 @@ public class AddressBook {
         if (nameLength <= 0) {
             throw new IllegalArgumentException("name length must be greater than 0");
         }
-        List<Contact> contacts = contactDao.findAll();
-        return contacts.stream()
-                .map(contact -> contact.getName().substring(0, nameLength))
-                .collect(Collectors.toList());
+        return contactDao.findNamesTruncated(nameLength);
     }
 
     /**
@@ -106,6 +143,9 @@ public class AddressBook {
      */
     @Transactional(readOnly = true)
     public List<Contact> getAllContactsWithPhoneNumber(String phoneNumberCode) {
+        if (isPrefixIndexAvailable()) {
+            return prefixIndex.findByPhoneNumberPrefix(phoneNumberCode);
+        }
         return contactDao.findAll()
                 .stream()
                 .filter(contact -> contact.getPhoneNumber() != null && contact.getPhoneNumber()
@@ -113,6 +153,27 @@ public class AddressBook {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Get names of contacts starting with the given prefix in ascending order.
+     *
+     * @param prefix prefix of name
+     * @param limit  max amount of names
+     * @return found names
+     */
+    @Transactional(readOnly = true)
+    public List<String> getContactNamesStartingWith(String prefix, int limit) {
+        if (isPrefixIndexAvailable()) {
+            return prefixIndex.findNamesByPrefix(prefix, limit);
+        }
+        return contactDao.findAll()
+                .stream()
+                .map(Contact::getName)
+                .filter(name -> name.startsWith(prefix))
+                .sorted()
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Get all contacts.
      *
@@ -123,9 +184,26 @@ public class AddressBook {
         return contactDao.findAll();
     }
 
+    /**
+     * Get page of contacts ordered by {@param sortKey}. To get the next page pass continuation token
+     * of the current page.
+     *
+     * @param sortKey           key by which contacts are ordered
+     * @param continuationToken token of the previous page or null for the first page
+     * @param pageSize          max amount of contacts in the page
+     * @return page of contacts
+     * @throws IllegalArgumentException if {@param pageSize} is out of range or token is malformed
+     */
+    @Transactional(readOnly = true)
+    public ContactPage getContactsPage(ContactSortKey sortKey, String continuationToken, int pageSize) {
+        return contactDao.findPage(sortKey, continuationToken, pageSize);
+    }
+
     /**
      * Save new contact. {@code name} cann't be null or empty. {@code phoneNumber} can be null or should contain only numbers.
-     * Before save {@param contact} check {@code name} with checkContactNameUnique(String contactName).
+     * Uniqueness of {@code name} is checked by the unique constraint of the database during the insert,
+     * so no separate lookup by name is made. Hibernate selects the id from the sequence before the insert,
+     * which is one more round trip on Oracle.
      *
      * @param contact a new contact to be saved in the database
      * @return saved to database {@param contact} with generated {@code id}
@@ -140,21 +218,21 @@ public class AddressBook {
         if (name == null || name.isEmpty()) {
             throw new IllegalArgumentException("Name of contact cann't be empty");
         }
-        if (contactDao.findContactByName(name) != null) {
-            throw new IllegalArgumentException("Contact with specified name already exist");
-        }
         String phoneNumber = contact.getPhoneNumber();
-        if (phoneNumber != null) {
-            Pattern p = Pattern.compile("[0-9]+");
-            Matcher m = p.matcher(phoneNumber);
-            if (!m.matches()) {
-                throw new IllegalArgumentException("Phone number should contain only digits");
-            }
+        if (phoneNumber != null && !containsOnlyDigits(phoneNumber)) {
+            throw new IllegalArgumentException("Phone number should contain only digits");
         }
         if (contact.getDateOfCreation() == null) {
             contact.setDateOfCreation(new Date());
         }
-        return contactDao.save(contact);
+        Contact saved;
+        try {
+            saved = contactDao.insert(contact);
+        } catch (DuplicateKeyException e) {
+            throw new IllegalArgumentException("Contact with specified name already exist", e);
+        }
+        addToPrefixIndex(saved);
+        return saved;
     }
 
     /**
@@ -167,4 +245,40 @@ public class AddressBook {
     public boolean checkContactNameUnique(String contactName) {
         return contactDao.findContactByName(contactName) == null;
     }
+
+    private boolean isPrefixIndexAvailable() {
+        return prefixIndex != null && prefixIndex.isAvailable();
+    }
+
+    /**
+     * Add saved contact to the prefix index after commit, so rolled back contacts do not get into it.
+     */
+    private void addToPrefixIndex(Contact saved) {
+        if (prefixIndex == null) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            prefixIndex.add(saved);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                prefixIndex.add(saved);
+            }
+        });
+    }
+
+    private static boolean containsOnlyDigits(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -2,6 +2,7 @@ package refactor_adressbook.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import refactor_adressbook.monitoring.DaoMetrics;
 
 import java.io.IOException;
 import java.sql.Connection;
@@ -14,10 +15,14 @@ import java.util.Properties;
  */
 @Component
 public class ConnectionFactory {
+    private static final String CONNECTION_PHASE = "connectionFactory.getConnection";
+
     private String url;
     private String login;
     private String password;
 
+    @Autowired
+    private DaoMetrics daoMetrics;
 
     @Autowired
     public ConnectionFactory(ResourcesUtil resourcesUtil) {
@@ -41,6 +46,14 @@ public class ConnectionFactory {
      * @throws SQLException if a database access error occurs
      */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, login, password);
+        long start = daoMetrics.start();
+        try {
+            Connection connection = DriverManager.getConnection(url, login, password);
+            daoMetrics.record(start, CONNECTION_PHASE, 1);
+            return connection;
+        } catch (SQLException e) {
+            daoMetrics.recordError(CONNECTION_PHASE);
+            throw e;
+        }
     }
 }
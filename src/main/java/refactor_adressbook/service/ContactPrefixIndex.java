@@ -0,0 +1,356 @@
+package refactor_adressbook.service;
+
+import org.springframework.beans.factory.InitializingBean;
+import refactor_adressbook.dao.ContactDao;
+import refactor_adressbook.dao.ContactPage;
+import refactor_adressbook.dao.ContactSortKey;
+import refactor_adressbook.model.Contact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * In-memory index of contacts for prefix queries by name and by phone number.
+ * <p>
+ * Contacts are kept in two sorted arrays (by name and by phone number), so a prefix query is a binary search
+ * plus a scan of the matching range which stops after the requested amount of entries. New contacts are
+ * inserted into small sorted pending arrays, which are merged into the main arrays when they are full, so a query
+ * merges two sorted ranges and never sorts. All arrays are immutable and replaced at once, so queries do not lock.
+ * <p>
+ * The index is loaded from {@link ContactDao} at startup. It sees only contacts saved through {@link #add(Contact)},
+ * changes made by other processes appear after {@link #refresh()}. If the amount of contacts exceeds
+ * {@code maxEntries}, the index becomes unavailable and callers must fall back to the database.
+ * <p>
+ * The index is optional and is enabled by declaring a bean of this class in the Spring context.
+ */
+public class ContactPrefixIndex implements InitializingBean {
+    private static final int PENDING_LIMIT = 256;
+    private static final int LOAD_PAGE_SIZE = 1000;
+    private static final Function<Entry, String> NAME = entry -> entry.name;
+    private static final Function<Entry, String> PHONE_NUMBER = entry -> entry.phoneNumber;
+    private static final Comparator<Entry> BY_NAME = Comparator.comparing(NAME);
+    private static final Comparator<Entry> BY_PHONE_NUMBER = Comparator.comparing(PHONE_NUMBER);
+
+    private final ContactDao contactDao;
+    private final int maxEntries;
+    private final Object refreshLock = new Object();
+    private volatile State state;
+    private List<Entry> addedDuringRefresh;
+
+    public ContactPrefixIndex(ContactDao contactDao, int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("max entries must be greater than 0");
+        }
+        this.contactDao = contactDao;
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        refresh();
+    }
+
+    /**
+     * Reload the index from the database. Queries are answered by the previous state until loading is finished.
+     * Contacts added during loading are kept.
+     */
+    public void refresh() {
+        synchronized (refreshLock) {
+            synchronized (this) {
+                addedDuringRefresh = new ArrayList<>();
+            }
+            List<Entry> loaded;
+            try {
+                loaded = load();
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    addedDuringRefresh = null;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                if (loaded == null) {
+                    state = null;
+                } else {
+                    Set<String> loadedNames = new HashSet<>();
+                    loaded.forEach(entry -> loadedNames.add(entry.name));
+                    addedDuringRefresh.stream()
+                            .filter(entry -> !loadedNames.contains(entry.name))
+                            .forEach(loaded::add);
+                    state = loaded.size() > maxEntries ? null : State.of(loaded.toArray(new Entry[loaded.size()]));
+                }
+                addedDuringRefresh = null;
+            }
+        }
+    }
+
+    /**
+     * Add saved contact to the index.
+     *
+     * @param contact contact saved to the database
+     */
+    public synchronized void add(Contact contact) {
+        Entry entry = new Entry(contact);
+        if (addedDuringRefresh != null) {
+            addedDuringRefresh.add(entry);
+        }
+        State current = state;
+        if (current == null) {
+            return;
+        }
+        state = current.size() >= maxEntries ? null : current.with(entry);
+    }
+
+    /**
+     * Check whether the index can answer queries.
+     *
+     * @return {@code false} if the index is not loaded yet or the amount of contacts exceeds the limit
+     */
+    public boolean isAvailable() {
+        return state != null;
+    }
+
+    /**
+     * Get phone number of contact by name.
+     *
+     * @param name name of contact
+     * @return phone number or null if a contact with {@param name} does not exist or has no phone number
+     * @throws IllegalStateException if the index is not available
+     */
+    public String findPhoneNumber(String name) {
+        State current = requireState();
+        Entry entry = current.findByName(name);
+        return entry != null ? entry.phoneNumber : null;
+    }
+
+    /**
+     * Find names of contacts starting with the given prefix in ascending order.
+     *
+     * @param prefix prefix of name
+     * @param limit  max amount of names
+     * @return found names
+     * @throws IllegalStateException if the index is not available
+     */
+    public List<String> findNamesByPrefix(String prefix, int limit) {
+        State current = requireState();
+        List<Entry> entries = current.findByPrefix(prefix, NAME, current.byName, current.pendingByName, limit);
+        List<String> names = new ArrayList<>(entries.size());
+        entries.forEach(entry -> names.add(entry.name));
+        return names;
+    }
+
+    /**
+     * Find contacts which phone number starts with the given code.
+     *
+     * @param phoneNumberCode code of phone number
+     * @return new contact instances ordered by phone number
+     * @throws IllegalStateException if the index is not available
+     */
+    public List<Contact> findByPhoneNumberPrefix(String phoneNumberCode) {
+        State current = requireState();
+        List<Entry> entries = current.findByPrefix(phoneNumberCode, PHONE_NUMBER,
+                current.byPhoneNumber, current.pendingByPhoneNumber, Integer.MAX_VALUE);
+        List<Contact> contacts = new ArrayList<>(entries.size());
+        entries.forEach(entry -> contacts.add(entry.toContact()));
+        return contacts;
+    }
+
+    /**
+     * Get amount of indexed contacts.
+     *
+     * @return amount of contacts or 0 if the index is not available
+     */
+    public int size() {
+        State current = state;
+        return current != null ? current.size() : 0;
+    }
+
+    private State requireState() {
+        State current = state;
+        if (current == null) {
+            throw new IllegalStateException("Prefix index is not available");
+        }
+        return current;
+    }
+
+    /**
+     * Load all contacts page by page.
+     *
+     * @return loaded contacts or null if there are more than {@code maxEntries} contacts
+     */
+    private List<Entry> load() {
+        List<Entry> entries = new ArrayList<>();
+        String token = null;
+        do {
+            ContactPage page = contactDao.findPage(ContactSortKey.ID, token, LOAD_PAGE_SIZE);
+            for (Contact contact : page.getContacts()) {
+                if (entries.size() == maxEntries) {
+                    return null;
+                }
+                entries.add(new Entry(contact));
+            }
+            token = page.getContinuationToken();
+        } while (token != null);
+        return entries;
+    }
+
+    /**
+     * Immutable snapshot of the index. Pending arrays hold contacts added since the last merge
+     * and are sorted like the main arrays.
+     */
+    private static class State {
+        private static final Entry[] EMPTY = new Entry[0];
+
+        private final Entry[] byName;
+        private final Entry[] byPhoneNumber;
+        private final Entry[] pendingByName;
+        private final Entry[] pendingByPhoneNumber;
+
+        private State(Entry[] byName, Entry[] byPhoneNumber, Entry[] pendingByName, Entry[] pendingByPhoneNumber) {
+            this.byName = byName;
+            this.byPhoneNumber = byPhoneNumber;
+            this.pendingByName = pendingByName;
+            this.pendingByPhoneNumber = pendingByPhoneNumber;
+        }
+
+        static State of(Entry[] entries) {
+            Entry[] byName = entries.clone();
+            Arrays.sort(byName, BY_NAME);
+            Entry[] byPhoneNumber = Arrays.stream(entries)
+                    .filter(entry -> entry.phoneNumber != null)
+                    .sorted(BY_PHONE_NUMBER)
+                    .toArray(Entry[]::new);
+            return new State(byName, byPhoneNumber, EMPTY, EMPTY);
+        }
+
+        int size() {
+            return byName.length + pendingByName.length;
+        }
+
+        State with(Entry entry) {
+            Entry[] newPendingByName = insert(pendingByName, entry, NAME);
+            Entry[] newPendingByPhoneNumber = entry.phoneNumber != null
+                    ? insert(pendingByPhoneNumber, entry, PHONE_NUMBER)
+                    : pendingByPhoneNumber;
+            if (newPendingByName.length < PENDING_LIMIT) {
+                return new State(byName, byPhoneNumber, newPendingByName, newPendingByPhoneNumber);
+            }
+            return new State(merge(byName, newPendingByName, BY_NAME),
+                    merge(byPhoneNumber, newPendingByPhoneNumber, BY_PHONE_NUMBER), EMPTY, EMPTY);
+        }
+
+        Entry findByName(String name) {
+            Entry entry = find(byName, name);
+            return entry != null ? entry : find(pendingByName, name);
+        }
+
+        /**
+         * Find entries which key starts with the given prefix. Matching ranges of the main and the pending array
+         * are merged until {@param limit} entries are found, so the cost depends on the limit and not on the amount
+         * of matching entries.
+         */
+        List<Entry> findByPrefix(String prefix, Function<Entry, String> key, Entry[] sorted, Entry[] pending, int limit) {
+            List<Entry> found = new ArrayList<>();
+            int i = lowerBound(sorted, prefix, key);
+            int j = lowerBound(pending, prefix, key);
+            while (found.size() < limit) {
+                boolean mainMatches = i < sorted.length && key.apply(sorted[i]).startsWith(prefix);
+                boolean pendingMatches = j < pending.length && key.apply(pending[j]).startsWith(prefix);
+                if (!mainMatches && !pendingMatches) {
+                    break;
+                }
+                if (mainMatches && (!pendingMatches || key.apply(sorted[i]).compareTo(key.apply(pending[j])) <= 0)) {
+                    found.add(sorted[i++]);
+                } else {
+                    found.add(pending[j++]);
+                }
+            }
+            return found;
+        }
+
+        private static Entry find(Entry[] sorted, String name) {
+            int index = lowerBound(sorted, name, NAME);
+            return index < sorted.length && sorted[index].name.equals(name) ? sorted[index] : null;
+        }
+
+        private static int lowerBound(Entry[] sorted, String value, Function<Entry, String> key) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (key.apply(sorted[middle]).compareTo(value) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Copy sorted array with the entry inserted after entries with the same key.
+         */
+        private static Entry[] insert(Entry[] sorted, Entry entry, Function<Entry, String> key) {
+            String value = key.apply(entry);
+            int index = lowerBound(sorted, value, key);
+            while (index < sorted.length && key.apply(sorted[index]).equals(value)) {
+                index++;
+            }
+            Entry[] inserted = new Entry[sorted.length + 1];
+            System.arraycopy(sorted, 0, inserted, 0, index);
+            inserted[index] = entry;
+            System.arraycopy(sorted, index, inserted, index + 1, sorted.length - index);
+            return inserted;
+        }
+
+        private static Entry[] merge(Entry[] first, Entry[] second, Comparator<Entry> comparator) {
+            Entry[] merged = new Entry[first.length + second.length];
+            int i = 0;
+            int j = 0;
+            int k = 0;
+            while (i < first.length && j < second.length) {
+                merged[k++] = comparator.compare(first[i], second[j]) <= 0 ? first[i++] : second[j++];
+            }
+            while (i < first.length) {
+                merged[k++] = first[i++];
+            }
+            while (j < second.length) {
+                merged[k++] = second[j++];
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * Immutable copy of contact, so callers can not break the order of the index by modifying contacts.
+     */
+    private static class Entry {
+        private final Long id;
+        private final String name;
+        private final String phoneNumber;
+        private final long dateOfCreation;
+
+        Entry(Contact contact) {
+            this.id = contact.getId();
+            this.name = Objects.requireNonNull(contact.getName(), "name cannot be null");
+            this.phoneNumber = contact.getPhoneNumber();
+            this.dateOfCreation = contact.getDateOfCreation().getTime();
+        }
+
+        Contact toContact() {
+            Contact contact = new Contact();
+            contact.setId(id);
+            contact.setName(name);
+            contact.setPhoneNumber(phoneNumber);
+            contact.setDateOfCreation(new Date(dateOfCreation));
+            return contact;
+        }
+    }
+}
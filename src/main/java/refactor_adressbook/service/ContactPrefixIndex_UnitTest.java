@@ -0,0 +1,187 @@
+package refactor_adressbook.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import refactor_adressbook.dao.InMemoryContactDao;
+import refactor_adressbook.model.Contact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static refactor_adressbook.dao.InMemoryContactDao.contact;
+
+/**
+ * JUnit test case for {@link ContactPrefixIndex}.
+ */
+public class ContactPrefixIndex_UnitTest {
+    InMemoryContactDao contactDao;
+    ContactPrefixIndex index;
+
+    @Before
+    public void setUp() throws Exception {
+        contactDao = new InMemoryContactDao();
+        contactDao.store(contact("banana", "7123"));
+        contactDao.store(contact("apple", "7456"));
+        contactDao.store(contact("apricot", null));
+        contactDao.store(contact("avocado", "8123"));
+        index = new ContactPrefixIndex(contactDao, 1000);
+        index.afterPropertiesSet();
+    }
+
+    @Test
+    public void testLoad() throws Exception {
+        assertTrue(index.isAvailable());
+        assertEquals(4, index.size());
+        assertEquals("7456", index.findPhoneNumber("apple"));
+        assertNull(index.findPhoneNumber("apricot"));
+        assertNull(index.findPhoneNumber("cherry"));
+    }
+
+    @Test
+    public void testLoadIsPaged() throws Exception {
+        for (int i = 0; i < 2500; i++) {
+            contactDao.store(contact(String.format("name-%04d", i), null));
+        }
+        int pageRequests = contactDao.getPageRequests();
+        ContactPrefixIndex large = new ContactPrefixIndex(contactDao, 10000);
+        large.afterPropertiesSet();
+        assertEquals(2504, large.size());
+        assertEquals(3, contactDao.getPageRequests() - pageRequests);
+        assertEquals("name-2499", large.findNamesByPrefix("name-2499", 10).get(0));
+    }
+
+    @Test
+    public void testFindNamesByPrefix() throws Exception {
+        assertEquals(Arrays.asList("apple", "apricot", "avocado"), index.findNamesByPrefix("a", 10));
+        assertEquals(Arrays.asList("apple", "apricot"), index.findNamesByPrefix("a", 2));
+        assertEquals(Arrays.asList("apple", "apricot"), index.findNamesByPrefix("ap", 10));
+        assertEquals(Collections.emptyList(), index.findNamesByPrefix("c", 10));
+        assertEquals(Collections.emptyList(), index.findNamesByPrefix("a", 0));
+        assertEquals(4, index.findNamesByPrefix("", 10).size());
+    }
+
+    @Test
+    public void testFindByPhoneNumberPrefix() throws Exception {
+        assertEquals(Arrays.asList("banana", "apple"), names(index.findByPhoneNumberPrefix("7")));
+        assertEquals(Collections.singletonList("avocado"), names(index.findByPhoneNumberPrefix("812")));
+        assertEquals(3, index.findByPhoneNumberPrefix("").size());
+    }
+
+    @Test
+    public void testFoundContactsAreCopies() throws Exception {
+        index.findByPhoneNumberPrefix("7456").get(0).setPhoneNumber("0");
+        assertEquals("7456", index.findPhoneNumber("apple"));
+    }
+
+    @Test
+    public void testPendingEntriesAreMergedInOrder() throws Exception {
+        index.add(contact("apex", "7000"));
+        index.add(contact("aardvark", null));
+        index.add(contact("azalea", "7999"));
+        assertEquals(7, index.size());
+        assertEquals(Arrays.asList("aardvark", "apex", "apple", "apricot", "avocado", "azalea"),
+                index.findNamesByPrefix("a", 10));
+        assertEquals(Arrays.asList("aardvark", "apex", "apple"), index.findNamesByPrefix("a", 3));
+        assertEquals(Arrays.asList("apex", "banana", "apple", "azalea"), names(index.findByPhoneNumberPrefix("7")));
+        assertEquals("7999", index.findPhoneNumber("azalea"));
+        assertNull(index.findPhoneNumber("aardvark"));
+    }
+
+    @Test
+    public void testPendingEntriesAreMergedIntoIndex() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (int i = 599; i >= 0; i--) {
+            String name = String.format("c-%03d", i);
+            index.add(contact(name, "9" + i));
+            expected.add(0, name);
+        }
+        assertEquals(604, index.size());
+        assertEquals(expected, index.findNamesByPrefix("c-", 1000));
+        assertEquals(expected.subList(0, 5), index.findNamesByPrefix("c-", 5));
+        assertEquals(Arrays.asList("c-500", "c-501"), index.findNamesByPrefix("c-50", 2));
+        assertEquals(600, index.findByPhoneNumberPrefix("9").size());
+        assertEquals("9599", index.findPhoneNumber("c-599"));
+        assertEquals("90", index.findPhoneNumber("c-000"));
+        assertEquals(Arrays.asList("apple", "apricot", "avocado"), index.findNamesByPrefix("a", 10));
+    }
+
+    @Test
+    public void testRefreshSeesDatabaseChanges() throws Exception {
+        contactDao.store(contact("cherry", "7789"));
+        assertNull(index.findPhoneNumber("cherry"));
+        index.refresh();
+        assertEquals("7789", index.findPhoneNumber("cherry"));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    public void testAddDuringRefreshIsKept() throws Exception {
+        Contact saved = contact("cherry", "7789");
+        Contact notLoaded = contact("coconut", "7000");
+        contactDao.setOnPageRequest(() -> {
+            // cherry is loaded by the refresh too, coconut is committed after its page was read
+            contactDao.store(saved);
+            index.add(saved);
+            index.add(notLoaded);
+        });
+        index.refresh();
+        contactDao.setOnPageRequest(null);
+        assertEquals(6, index.size());
+        assertEquals(Arrays.asList("cherry", "coconut"), index.findNamesByPrefix("c", 10));
+    }
+
+    @Test
+    public void testFailedRefreshKeepsPreviousState() throws Exception {
+        contactDao.setOnPageRequest(() -> {
+            throw new IllegalStateException("connection refused");
+        });
+        try {
+            index.refresh();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("connection refused", e.getMessage());
+        }
+        contactDao.setOnPageRequest(null);
+        assertTrue(index.isAvailable());
+        index.add(contact("cherry", "7789"));
+        assertEquals(5, index.size());
+    }
+
+    @Test
+    public void testTooManyContactsOnLoad() throws Exception {
+        ContactPrefixIndex small = new ContactPrefixIndex(contactDao, 3);
+        small.afterPropertiesSet();
+        assertFalse(small.isAvailable());
+        assertEquals(0, small.size());
+    }
+
+    @Test
+    public void testTooManyContactsOnAdd() throws Exception {
+        ContactPrefixIndex small = new ContactPrefixIndex(contactDao, 5);
+        small.afterPropertiesSet();
+        small.add(contact("cherry", "7789"));
+        assertTrue(small.isAvailable());
+        assertEquals(5, small.size());
+        small.add(contact("coconut", "7000"));
+        assertFalse(small.isAvailable());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testQueryOfUnavailableIndex() throws Exception {
+        new ContactPrefixIndex(contactDao, 1).findNamesByPrefix("a", 10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMaxEntries() throws Exception {
+        new ContactPrefixIndex(contactDao, 0);
+    }
+
+    private static List<String> names(List<Contact> contacts) {
+        List<String> names = new ArrayList<>();
+        contacts.forEach(contact -> names.add(contact.getName()));
+        return names;
+    }
+}